@@ -0,0 +1,82 @@
+package com.example.bugstick;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per frame cost of the sample's {@link BugTrail} after a bug has been steered around the screen
+ * for the given number of simulated hours, which should not differ between them. Covers the
+ * trail's update only; what a frame draws is bounded by {@code BugTrailTest}, and drawing needs a
+ * framework Canvas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BugTrailBenchmark {
+    private static final float DENSITY = 3;
+    private static final float MAX_LENGTH = 200 * DENSITY;
+    private static final float MIN_SEGMENT_LENGTH = 2 * DENSITY;
+    private static final int WIDTH = 1080, HEIGHT = 1920;
+    private static final float MAX_SPEED = 400 * DENSITY; // pixels per second
+
+    private static final int STEPS_PER_SECOND = 120;
+    private static final int STEPS_PER_FRAME = 2;
+
+    @Param({"0", "1", "4"})
+    public int hoursElapsed;
+
+    private Random random;
+    private float x, y;
+    private float velocityX, velocityY;
+    private BugTrail trail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new Random(17);
+        x = WIDTH / 2;
+        y = HEIGHT / 2;
+        trail = new BugTrail(MAX_LENGTH, MIN_SEGMENT_LENGTH);
+        trail.reset(x, y);
+
+        final long steps = (long) hoursElapsed * 3600 * STEPS_PER_SECOND;
+        for (long s = 0; s < steps; s++) step();
+    }
+
+    /**
+     * Advances the bug by one simulation step, steering it as a joystick occasionally would.
+     */
+    private void step() {
+        if (0 == random.nextInt(STEPS_PER_SECOND)) {
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            final float speed = random.nextFloat() * MAX_SPEED;
+            velocityX = speed * (float) Math.cos(angle);
+            velocityY = speed * (float) Math.sin(angle);
+        }
+
+        x = Math.max(0, Math.min(WIDTH, x + velocityX / STEPS_PER_SECOND));
+        y = Math.max(0, Math.min(HEIGHT, y + velocityY / STEPS_PER_SECOND));
+        trail.lineTo(x, y);
+    }
+
+    @Benchmark
+    public BugTrail frame() {
+        for (int s = 0; s < STEPS_PER_FRAME; s++) step();
+        return trail;
+    }
+}
@@ -0,0 +1,143 @@
+package com.jmedeisis.bugstick;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events per second through {@link JoystickStreamEncoder} and {@link JoystickStreamDecoder}, for a
+ * trace of synthetic gestures written as ticks of {@link #EVENTS_PER_TICK} events. The encoded
+ * size is covered by {@code JoystickStreamCodecTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JoystickStreamBenchmark {
+    static final int EVENTS_PER_TICK = 64;
+
+    private static final int TRACE_LENGTH = 1 << 16;
+    private static final int TICK_COUNT = TRACE_LENGTH / EVENTS_PER_TICK;
+
+    @Param({"8", "12"})
+    public int angleBits;
+
+    @Param({"6", "10"})
+    public int offsetBits;
+
+    private int[] actions;
+    private float[] degrees;
+    private float[] offsets;
+    private int index;
+
+    private JoystickStreamEncoder encoder;
+    private ByteBuffer encodeBuffer;
+    private int tick;
+
+    private JoystickStreamDecoder decoder;
+    private ByteBuffer encoded;
+    private JoystickListener decodeListener;
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) {
+        final SyntheticTrace trace = new SyntheticTrace(TRACE_LENGTH,
+                StickGeometryBenchmark.TRACE_SEED);
+        actions = trace.actions;
+        degrees = new float[TRACE_LENGTH];
+        offsets = new float[TRACE_LENGTH];
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            final float dx = trace.x[i] - SyntheticTrace.CENTER;
+            final float dy = trace.y[i] - SyntheticTrace.CENTER;
+            degrees[i] = (float) Math.toDegrees(Math.atan2(-dy, dx));
+            offsets[i] = Math.min(1, (float) Math.sqrt(dx * dx + dy * dy) / SyntheticTrace.RADIUS);
+        }
+
+        final int maxBytesPerTick = 10 * EVENTS_PER_TICK;
+        encoder = new JoystickStreamEncoder(angleBits, offsetBits, maxBytesPerTick);
+        encodeBuffer = ByteBuffer.allocate(maxBytesPerTick + 10);
+
+        // the whole trace, once, for the decoder to replay
+        final JoystickStreamEncoder traceEncoder = new JoystickStreamEncoder(angleBits, offsetBits,
+                maxBytesPerTick);
+        final ByteBuffer stream = ByteBuffer.allocate(TICK_COUNT * (maxBytesPerTick + 10));
+        for (int t = 0; t < TICK_COUNT; t++) {
+            feedTick(traceEncoder);
+            traceEncoder.writeTick(t, stream);
+        }
+        stream.flip();
+        encoded = stream.asReadOnlyBuffer();
+        decoder = new JoystickStreamDecoder(angleBits, offsetBits);
+        decodeListener = new JoystickListener() {
+            @Override
+            public void onDown() {
+                blackhole.consume(0);
+            }
+
+            @Override
+            public void onDrag(float degrees, float offset) {
+                blackhole.consume(degrees);
+                blackhole.consume(offset);
+            }
+
+            @Override
+            public void onUp() {
+                blackhole.consume(1);
+            }
+        };
+        index = 0;
+    }
+
+    private void feedTick(JoystickListener listener) {
+        for (int e = 0; e < EVENTS_PER_TICK; e++) {
+            final int i = index;
+            index = (index + 1) & (TRACE_LENGTH - 1);
+            switch (actions[i]) {
+                case SyntheticTrace.ACTION_DOWN:
+                    listener.onDown();
+                    break;
+                case SyntheticTrace.ACTION_UP:
+                    listener.onUp();
+                    break;
+                default:
+                    listener.onDrag(degrees[i], offsets[i]);
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_TICK)
+    public int encode() {
+        feedTick(encoder);
+        encodeBuffer.clear();
+        encoder.writeTick(tick++, encodeBuffer);
+        return encodeBuffer.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_TICK)
+    public int decode() {
+        if (!encoded.hasRemaining()) {
+            // the stream starts over from tick 0
+            encoded.rewind();
+            decoder.reset();
+        }
+        return decoder.readTick(encoded, decodeListener);
+    }
+}
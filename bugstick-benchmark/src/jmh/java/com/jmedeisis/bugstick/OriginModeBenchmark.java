@@ -0,0 +1,84 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per touch event cost of {@link JoystickCore} under each {@link OriginMode}, replaying a trace of
+ * millions of synthetic pointer samples through its full touch handling, from action dispatch to
+ * the callback.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class OriginModeBenchmark {
+    @Param({"FIXED", "FLOATING", "FOLLOWING"})
+    public OriginMode originMode;
+
+    @Param({"NONE", "HORIZONTAL"})
+    public MotionConstraint motionConstraint;
+
+    private SyntheticTrace trace;
+    private JoystickCore core;
+    private float dragSum;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        trace = new SyntheticTrace(StickGeometryBenchmark.TRACE_LENGTH,
+                StickGeometryBenchmark.TRACE_SEED);
+        core = new JoystickCore(new JoystickCore.Callback() {
+            @Override
+            public void onStartDetectingDrag(long eventTime) {
+            }
+
+            @Override
+            public void onDragStart(long eventTime) {
+            }
+
+            @Override
+            public void onDrag(long eventTime) {
+                dragSum += core.getVectorX() + core.getVectorY();
+            }
+
+            @Override
+            public void onDragStop(long eventTime, boolean locked) {
+            }
+
+            @Override
+            public void onStopDetectingDrag(long eventTime, boolean locked) {
+                // as Joystick does once the stick has returned
+                core.centerStick();
+            }
+        });
+        core.setCenter(SyntheticTrace.CENTER, SyntheticTrace.CENTER);
+        core.setRadius(SyntheticTrace.RADIUS);
+        core.setTouchSlop(8);
+        core.setOriginMode(originMode);
+        core.setMotionConstraint(motionConstraint);
+    }
+
+    @Benchmark
+    public float processTouch() {
+        index = (index + 1) & (StickGeometryBenchmark.TRACE_LENGTH - 1);
+        final int i = index;
+        core.processTouch(trace.actions[i], 0, trace.x[i], trace.y[i], trace.eventTimes[i]);
+        return dragSum;
+    }
+}
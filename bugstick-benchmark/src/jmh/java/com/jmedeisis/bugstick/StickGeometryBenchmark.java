@@ -0,0 +1,73 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per touch sample cost of the geometry {@link Joystick} evaluates while dragging, under each
+ * motion constraint, over a trace of millions of synthetic pointer samples.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class StickGeometryBenchmark {
+    static final int TRACE_LENGTH = 1 << 21;
+    static final long TRACE_SEED = 42;
+
+    private static final int TOUCH_SLOP = 8;
+
+    @Param({"NONE", "HORIZONTAL", "VERTICAL", "DIRECTIONAL"})
+    public MotionConstraint motionConstraint;
+
+    private SyntheticTrace trace;
+    private final float[] out = new float[2];
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        trace = new SyntheticTrace(TRACE_LENGTH, TRACE_SEED);
+    }
+
+    private int next() {
+        index = (index + 1) & (TRACE_LENGTH - 1);
+        return index;
+    }
+
+    @Benchmark
+    public float constrain() {
+        final int i = next();
+        StickGeometry.constrain(motionConstraint, trace.x[i] - SyntheticTrace.CENTER,
+                trace.y[i] - SyntheticTrace.CENTER, SyntheticTrace.RADIUS, out);
+        return out[0] + out[1];
+    }
+
+    @Benchmark
+    public boolean exceedsSlop() {
+        final int i = next();
+        return StickGeometry.exceedsSlop(motionConstraint, trace.x[i] - SyntheticTrace.CENTER,
+                trace.y[i] - SyntheticTrace.CENTER, TOUCH_SLOP);
+    }
+
+    @Benchmark
+    public float radius() {
+        final int i = next();
+        // sizes vary with the trace so the result cannot be folded into a constant
+        return StickGeometry.radius(motionConstraint, (int) trace.x[i], (int) trace.y[i], 40, 40);
+    }
+}
@@ -0,0 +1,67 @@
+package com.jmedeisis.bugstick;
+
+import java.util.Random;
+
+/**
+ * A long, reproducible sequence of single-pointer touch gestures over a joystick, as primitive
+ * arrays, so that benchmarks can replay it without allocating.
+ * Each gesture goes down near the center, wanders as a random walk, and goes up.
+ */
+final class SyntheticTrace {
+    // MotionEvent masked action values
+    static final int ACTION_DOWN = 0;
+    static final int ACTION_UP = 1;
+    static final int ACTION_MOVE = 2;
+
+    static final float CENTER = 200;
+    static final float RADIUS = 150;
+
+    private static final int MIN_GESTURE_LENGTH = 8;
+    private static final int MAX_GESTURE_LENGTH = 256;
+    private static final float MAX_STEP = 12;
+    private static final long FRAME_MS = 16;
+
+    final int length;
+    final int[] actions;
+    final float[] x;
+    final float[] y;
+    final long[] eventTimes;
+
+    /**
+     * @param length Number of events; a power of two, so that replay can wrap with a mask.
+     */
+    SyntheticTrace(int length, long seed) {
+        if (Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException("Length must be a power of two");
+        }
+        this.length = length;
+        actions = new int[length];
+        x = new float[length];
+        y = new float[length];
+        eventTimes = new long[length];
+
+        final Random random = new Random(seed);
+        long time = 0;
+        int i = 0;
+        while (i < length) {
+            final int gestureLength = Math.min(length - i, MIN_GESTURE_LENGTH
+                    + random.nextInt(MAX_GESTURE_LENGTH - MIN_GESTURE_LENGTH));
+            float px = CENTER + (random.nextFloat() - 0.5f) * RADIUS;
+            float py = CENTER + (random.nextFloat() - 0.5f) * RADIUS;
+            for (int g = 0; g < gestureLength; g++, i++) {
+                if (g > 0) {
+                    px += (random.nextFloat() - 0.5f) * 2 * MAX_STEP;
+                    py += (random.nextFloat() - 0.5f) * 2 * MAX_STEP;
+                }
+                actions[i] = 0 == g ? ACTION_DOWN :
+                        gestureLength - 1 == g ? ACTION_UP : ACTION_MOVE;
+                x[i] = px;
+                y[i] = py;
+                eventTimes[i] = time;
+                time += FRAME_MS;
+            }
+        }
+        // a wrapping replay must not start a gesture within another
+        actions[length - 1] = ACTION_UP;
+    }
+}
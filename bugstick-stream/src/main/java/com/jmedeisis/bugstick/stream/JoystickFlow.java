@@ -0,0 +1,45 @@
+package com.jmedeisis.bugstick.stream;
+
+/**
+ * The publisher, subscriber and subscription contracts of {@code java.util.concurrent.Flow} and
+ * Reactive Streams, which are not available on the Android versions this library supports.
+ * The method signatures are identical, so either side can be adapted to RxJava, Reactor or
+ * {@code java.util.concurrent.Flow} with a trivial wrapper.
+ */
+public final class JoystickFlow {
+
+    private JoystickFlow() {
+    }
+
+    public interface Publisher<T> {
+        /**
+         * Adds the given subscriber, which then receives {@link Subscriber#onSubscribe} before any
+         * other signal.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+        /**
+         * Adds the given number of items to the demand of the subscriber.
+         *
+         * @param n Positive number of items, or {@link Long#MAX_VALUE} for unbounded demand.
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of items. Items already being delivered may still arrive.
+         */
+        void cancel();
+    }
+}
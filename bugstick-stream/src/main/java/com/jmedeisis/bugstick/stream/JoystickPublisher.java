@@ -0,0 +1,366 @@
+package com.jmedeisis.bugstick.stream;
+
+import android.support.annotation.NonNull;
+
+import com.jmedeisis.bugstick.Joystick;
+import com.jmedeisis.bugstick.JoystickListener;
+import com.jmedeisis.bugstick.JoystickState;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the state of a {@link Joystick} as a stream of {@link StickEvent}s, with backpressure.
+ * <p>
+ * The stream is conflated: each subscriber holds at most one undelivered event, which a newer
+ * state replaces. A subscriber that requests slowly, or whose operators are slow, therefore
+ * receives fewer, more recent states, and never holds up touch handling or other subscribers.
+ * Publishing an event takes no locks beyond that of the {@link StickEvent} pool, and allocates
+ * nothing once subscribers {@link StickEvent#recycle() recycle} their events.
+ * <p>
+ * Each subscriber is signalled on the executor given at creation, never concurrently. A new
+ * subscriber first receives the current state, once it requests an item.
+ */
+public final class JoystickPublisher implements JoystickFlow.Publisher<StickEvent> {
+
+    private static final StickSubscription[] NO_SUBSCRIPTIONS = new StickSubscription[0];
+
+    /**
+     * Reads the current stick state, as {@link Joystick#getState(JoystickState)} does.
+     */
+    interface StateSource {
+        void getState(JoystickState out);
+    }
+
+    private final Joystick joystick;
+    private final StateSource stateSource;
+    private final Executor executor;
+    /** Runs state reads outside of ticks, on the thread of the change source; null for ticks. */
+    private final Executor source;
+
+    private final Object lock = new Object(); // guards changes to the subscriptions
+    private volatile StickSubscription[] subscriptions = NO_SUBSCRIPTIONS;
+    private boolean closed;
+
+    private JoystickListener listener;
+    private ScheduledFuture<?> tick;
+
+    /*
+    Accessed only by the source.
+     */
+    private final JoystickState state = new JoystickState();
+    private long sampledVersion = -1;
+
+    /**
+     * Creates a publisher that emits every change of the stick state. Must be called on the UI
+     * thread.
+     *
+     * @param executor Signals the subscribers, e.g. a background thread.
+     */
+    public static JoystickPublisher ofChanges(@NonNull final Joystick joystick,
+                                              @NonNull Executor executor) {
+        final JoystickPublisher publisher = new JoystickPublisher(joystick, executor,
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable command) {
+                        joystick.post(command);
+                    }
+                });
+        publisher.listener = new JoystickListener() {
+            @Override
+            public void onDown() {
+                publisher.publish();
+            }
+
+            @Override
+            public void onDrag(float degrees, float offset) {
+                publisher.publish();
+            }
+
+            @Override
+            public void onUp() {
+                publisher.publish();
+            }
+        };
+        joystick.addJoystickListener(publisher.listener);
+        return publisher;
+    }
+
+    /**
+     * Creates a publisher that samples the stick state once per tick, e.g. of a game loop, and
+     * emits it if it changed since the previous tick. States between ticks are skipped, including
+     * a tap that is shorter than a tick.
+     *
+     * @param scheduler Runs the ticks and signals the subscribers.
+     */
+    public static JoystickPublisher ofTicks(@NonNull Joystick joystick,
+                                            @NonNull ScheduledExecutorService scheduler,
+                                            long period, @NonNull TimeUnit unit) {
+        final JoystickPublisher publisher = new JoystickPublisher(joystick, scheduler, null);
+        publisher.tick = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                publisher.sample();
+            }
+        }, 0, period, unit);
+        return publisher;
+    }
+
+    private JoystickPublisher(final Joystick joystick, Executor executor, Executor source) {
+        this(joystick, new StateSource() {
+            @Override
+            public void getState(JoystickState out) {
+                joystick.getState(out);
+            }
+        }, executor, source);
+    }
+
+    /**
+     * @param joystick May be null, e.g. in tests, if not the source of the state.
+     * @param source   Runs state reads outside of ticks, or null to read them only on ticks.
+     */
+    JoystickPublisher(Joystick joystick, StateSource stateSource, Executor executor,
+                      Executor source) {
+        this.joystick = joystick;
+        this.stateSource = stateSource;
+        this.executor = executor;
+        this.source = source;
+    }
+
+    @Override
+    public void subscribe(JoystickFlow.Subscriber<? super StickEvent> subscriber) {
+        if (null == subscriber) throw new NullPointerException("Subscriber must not be null");
+
+        final StickSubscription subscription = new StickSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+
+        final boolean added;
+        synchronized (lock) {
+            added = !closed;
+            if (added) {
+                final int count = subscriptions.length;
+                final StickSubscription[] newSubscriptions = new StickSubscription[count + 1];
+                System.arraycopy(subscriptions, 0, newSubscriptions, 0, count);
+                newSubscriptions[count] = subscription;
+                subscriptions = newSubscriptions;
+            }
+        }
+
+        if (!added) {
+            subscription.complete();
+            return;
+        }
+        if (null == source) return; // the next tick offers the current state
+
+        source.execute(new Runnable() {
+            @Override
+            public void run() {
+                stateSource.getState(state);
+                subscription.offer(state);
+            }
+        });
+    }
+
+    /**
+     * Stops publishing and completes all subscribers. Must be called on the UI thread.
+     */
+    public void close() {
+        if (null != listener) joystick.removeJoystickListener(listener);
+        if (null != tick) tick.cancel(false);
+
+        final StickSubscription[] subscriptions;
+        synchronized (lock) {
+            closed = true;
+            subscriptions = this.subscriptions;
+            this.subscriptions = NO_SUBSCRIPTIONS;
+        }
+        for (StickSubscription subscription : subscriptions) subscription.complete();
+    }
+
+    private void remove(StickSubscription subscription) {
+        synchronized (lock) {
+            final int count = subscriptions.length;
+            for (int i = 0; i < count; i++) {
+                if (subscriptions[i] != subscription) continue;
+
+                final StickSubscription[] newSubscriptions = 1 == count ? NO_SUBSCRIPTIONS :
+                        new StickSubscription[count - 1];
+                System.arraycopy(subscriptions, 0, newSubscriptions, 0, i);
+                System.arraycopy(subscriptions, i + 1, newSubscriptions, i, count - i - 1);
+                subscriptions = newSubscriptions;
+                return;
+            }
+        }
+    }
+
+    /*
+    SOURCE
+     */
+
+    /**
+     * Offers the current state to every subscriber.
+     */
+    void publish() {
+        final StickSubscription[] subscriptions = this.subscriptions;
+        if (0 == subscriptions.length) return;
+
+        stateSource.getState(state);
+        for (StickSubscription subscription : subscriptions) subscription.offer(state);
+    }
+
+    /**
+     * Offers the current state to every subscriber, if it changed since the previous sample.
+     */
+    private void sample() {
+        final StickSubscription[] subscriptions = this.subscriptions;
+        if (0 == subscriptions.length) return;
+
+        stateSource.getState(state);
+        final boolean changed = state.getVersion() != sampledVersion;
+        sampledVersion = state.getVersion();
+
+        for (StickSubscription subscription : subscriptions) {
+            if (changed || !subscription.offered) subscription.offer(state);
+        }
+    }
+
+    private final class StickSubscription implements JoystickFlow.Subscription, Runnable {
+        private final JoystickFlow.Subscriber<? super StickEvent> subscriber;
+
+        private final AtomicReference<StickEvent> pending = new AtomicReference<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        /*
+        Accessed only by the source.
+         */
+        private boolean offered;
+
+        /*
+        Accessed only by the single drain in progress.
+         */
+        private boolean terminated;
+
+        StickSubscription(JoystickFlow.Subscriber<? super StickEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /*
+        SOURCE
+         */
+        void offer(JoystickState state) {
+            offered = true;
+            if (cancelled) return;
+
+            final StickEvent replaced = pending.getAndSet(StickEvent.obtain(state));
+            if (null != replaced) replaced.recycle();
+            signal();
+        }
+
+        void complete() {
+            completed = true;
+            signal();
+        }
+
+        /*
+        SUBSCRIBER
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested items must be positive, was " + n);
+                signal();
+                return;
+            }
+
+            long current, requested;
+            do {
+                current = demand.get();
+                if (Long.MAX_VALUE == current) break;
+                requested = current + n;
+                if (requested < 0) requested = Long.MAX_VALUE; // overflow; unbounded
+            } while (!demand.compareAndSet(current, requested));
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+
+            final StickEvent discarded = pending.getAndSet(null);
+            if (null != discarded) discarded.recycle();
+        }
+
+        private void signal() {
+            if (!scheduled.compareAndSet(false, true)) return;
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // executor shut down; nothing left to deliver to
+                scheduled.set(false);
+            }
+        }
+
+        /*
+        EXECUTOR
+         */
+        @Override
+        public void run() {
+            do {
+                drain();
+                scheduled.set(false);
+                // recheck, as a signal during the drain could not schedule another one
+            } while (hasPending() && scheduled.compareAndSet(false, true));
+        }
+
+        private boolean hasPending() {
+            if (terminated || cancelled) return false;
+            return null != error || completed || (demand.get() > 0 && null != pending.get());
+        }
+
+        private void drain() {
+            if (terminated || cancelled) return;
+
+            if (null != error) {
+                terminate();
+                subscriber.onError(error);
+                return;
+            }
+
+            while (!cancelled && demand.get() > 0) {
+                final StickEvent event = pending.getAndSet(null);
+                if (null == event) break;
+
+                if (Long.MAX_VALUE != demand.get()) demand.decrementAndGet();
+                try {
+                    subscriber.onNext(event);
+                } catch (RuntimeException e) {
+                    terminate();
+                    subscriber.onError(e);
+                    return;
+                }
+            }
+
+            if (completed && !cancelled) {
+                terminate();
+                subscriber.onComplete();
+            }
+        }
+
+        private void terminate() {
+            terminated = true;
+            cancel();
+        }
+    }
+}
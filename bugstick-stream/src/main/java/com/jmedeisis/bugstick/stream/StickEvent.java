@@ -0,0 +1,129 @@
+package com.jmedeisis.bugstick.stream;
+
+import com.jmedeisis.bugstick.JoystickState;
+import com.jmedeisis.bugstick.StickGeometry;
+
+/**
+ * An immutable snapshot of a joystick's output, as emitted by {@link JoystickPublisher}.
+ * <p>
+ * Instances are pooled. Once done with an event, a subscriber may {@link #recycle()} it so that
+ * later events reuse it instead of allocating; an event that is never recycled is simply garbage
+ * collected. A recycled event must not be accessed again.
+ */
+public final class StickEvent {
+
+    private static final int MAX_POOL_SIZE = 16;
+
+    private static final Object poolLock = new Object();
+    private static StickEvent pool;
+    private static int poolSize;
+
+    private StickEvent next;
+    private boolean recycled;
+
+    private long version;
+    private boolean pressed;
+    private float x, y;
+    private long eventTime;
+
+    private StickEvent() {
+    }
+
+    /**
+     * @return A pooled or new event holding a copy of the given state.
+     */
+    static StickEvent obtain(JoystickState state) {
+        StickEvent event = null;
+        synchronized (poolLock) {
+            if (null != pool) {
+                event = pool;
+                pool = event.next;
+                event.next = null;
+                poolSize--;
+            }
+        }
+        if (null == event) event = new StickEvent();
+
+        event.recycled = false;
+        event.version = state.getVersion();
+        event.pressed = state.isPressed();
+        event.x = state.getX();
+        event.y = state.getY();
+        event.eventTime = state.getEventTime();
+        return event;
+    }
+
+    /**
+     * Returns this event to the pool.
+     *
+     * @throws IllegalStateException If the event has already been recycled.
+     */
+    public void recycle() {
+        if (recycled) throw new IllegalStateException(this + " recycled twice!");
+        recycled = true;
+
+        synchronized (poolLock) {
+            if (poolSize < MAX_POOL_SIZE) {
+                next = pool;
+                pool = this;
+                poolSize++;
+            }
+        }
+    }
+
+    /**
+     * @see JoystickState#getVersion()
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return True while the user is touching the stick.
+     */
+    public boolean isPressed() {
+        return pressed;
+    }
+
+    /**
+     * @return -1 (left) -> 1 (right).
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * @return -1 (down) -> 1 (up).
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * @return -180 -> 180.
+     */
+    public float getDegrees() {
+        return StickGeometry.degrees(x, -y);
+    }
+
+    /**
+     * @return Normalized, 0 -> 1.
+     */
+    public float getOffset() {
+        return StickGeometry.offset(x, y, 1);
+    }
+
+    /**
+     * @return Time of the input event that produced this state, in the
+     * {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    @Override
+    public String toString() {
+        return "StickEvent{pressed=" + pressed + ", x=" + x + ", y=" + y + ", eventTime="
+                + eventTime + "}";
+    }
+}
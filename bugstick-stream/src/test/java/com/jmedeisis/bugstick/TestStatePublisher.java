@@ -0,0 +1,16 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Publishes stick states as a {@link Joystick} does, for tests outside this package.
+ */
+public final class TestStatePublisher {
+    private final JoystickStatePublisher publisher = new JoystickStatePublisher();
+
+    public void publish(boolean pressed, float x, float y, long eventTime) {
+        publisher.publish(pressed, x, y, eventTime);
+    }
+
+    public void read(JoystickState out) {
+        publisher.read(out);
+    }
+}
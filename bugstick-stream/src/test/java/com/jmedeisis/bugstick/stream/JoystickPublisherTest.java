@@ -0,0 +1,260 @@
+package com.jmedeisis.bugstick.stream;
+
+import com.jmedeisis.bugstick.JoystickState;
+import com.jmedeisis.bugstick.TestStatePublisher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JoystickPublisherTest {
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Queues tasks until the test runs them, as a busy subscriber thread would.
+     */
+    private static final class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while (null != (task = tasks.poll())) task.run();
+        }
+    }
+
+    /**
+     * Records its events, and recycles none of them unless asked to.
+     */
+    private static class RecordingSubscriber implements JoystickFlow.Subscriber<StickEvent> {
+        final List<StickEvent> events = new ArrayList<>();
+        final List<Float> xs = new ArrayList<>();
+        JoystickFlow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(JoystickFlow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(StickEvent item) {
+            events.add(item);
+            xs.add(item.getX());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private final TestStatePublisher states = new TestStatePublisher();
+    private final JoystickPublisher.StateSource stateSource = new JoystickPublisher.StateSource() {
+        @Override
+        public void getState(JoystickState out) {
+            states.read(out);
+        }
+    };
+    private final ManualExecutor executor = new ManualExecutor();
+    private ExecutorService thread;
+    private long eventTime;
+
+    @Before
+    public void setUp() {
+        thread = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        thread.shutdownNow();
+    }
+
+    /**
+     * Publishes a state with the given x, as the joystick would on a drag.
+     */
+    private void drag(JoystickPublisher publisher, float x) {
+        states.publish(true, x, 0, ++eventTime);
+        publisher.publish();
+    }
+
+    @Test
+    public void slowDemand_receivesOnlyLatestState() {
+        final JoystickPublisher publisher = new JoystickPublisher(null, stateSource, executor,
+                DIRECT);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        for (int i = 1; i <= 10; i++) drag(publisher, i / 10f);
+        executor.runAll();
+        assertTrue(subscriber.events.isEmpty());
+
+        subscriber.subscription.request(1);
+        executor.runAll();
+        assertEquals(1, subscriber.events.size());
+        assertEquals(1f, subscriber.events.get(0).getX(), 0);
+
+        // demand met, so the next states are conflated until more is requested
+        for (int i = 1; i <= 5; i++) drag(publisher, -i / 10f);
+        executor.runAll();
+        assertEquals(1, subscriber.events.size());
+
+        subscriber.subscription.request(3);
+        executor.runAll();
+        assertEquals(2, subscriber.events.size());
+        assertEquals(-0.5f, subscriber.events.get(1).getX(), 0);
+
+        // the remaining demand delivers each new state
+        drag(publisher, 0.25f);
+        executor.runAll();
+        drag(publisher, 0.75f);
+        executor.runAll();
+        assertEquals(4, subscriber.events.size());
+        assertEquals(0.75f, subscriber.events.get(3).getX(), 0);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void cancelDuringDelivery_deliversNothingMore() throws InterruptedException {
+        final JoystickPublisher publisher = new JoystickPublisher(null, stateSource, thread,
+                DIRECT);
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(StickEvent item) {
+                super.onNext(item);
+                delivering.countDown();
+                try {
+                    cancelled.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+
+        // while the subscriber is still handling the first event
+        drag(publisher, 0.5f);
+        subscriber.subscription.cancel();
+        drag(publisher, 1f);
+        cancelled.countDown();
+
+        publisher.close();
+        thread.shutdown();
+        assertTrue(thread.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, subscriber.events.size());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void cancelFromOnNext_deliversNothingMore() {
+        final JoystickPublisher publisher = new JoystickPublisher(null, stateSource, executor,
+                DIRECT);
+        final RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(StickEvent item) {
+                super.onNext(item);
+                subscription.cancel();
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+        assertEquals(1, subscriber.events.size());
+
+        drag(publisher, 1f);
+        executor.runAll();
+        publisher.close();
+        executor.runAll();
+        assertEquals(1, subscriber.events.size());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void heldEvents_areNotOverwrittenByLaterOnes() {
+        final JoystickPublisher publisher = new JoystickPublisher(null, stateSource, executor,
+                DIRECT);
+        final RecordingSubscriber holding = new RecordingSubscriber();
+        // recycles each event as soon as it has read it, so that the pool is in constant use
+        final RecordingSubscriber recycling = new RecordingSubscriber() {
+            @Override
+            public void onNext(StickEvent item) {
+                super.onNext(item);
+                item.recycle();
+            }
+        };
+        publisher.subscribe(holding);
+        publisher.subscribe(recycling);
+        holding.subscription.request(Long.MAX_VALUE);
+        recycling.subscription.request(Long.MAX_VALUE);
+        executor.runAll();
+
+        // well beyond the pool size, with states replaced before delivery in between
+        for (int i = 0; i < 200; i++) {
+            drag(publisher, i / 200f);
+            if (0 == i % 3) executor.runAll();
+        }
+        executor.runAll();
+
+        for (int i = 0; i < holding.events.size(); i++) {
+            assertEquals("event " + i, holding.xs.get(i), holding.events.get(i).getX(), 0);
+            for (int j = 0; j < i; j++) {
+                assertNotSame(holding.events.get(j), holding.events.get(i));
+            }
+        }
+        // the latest state is always delivered
+        assertEquals(199 / 200f, holding.xs.get(holding.xs.size() - 1), 0);
+        assertEquals(199 / 200f, recycling.xs.get(recycling.xs.size() - 1), 0);
+    }
+
+    @Test
+    public void close_completesSubscribers() {
+        final JoystickPublisher publisher = new JoystickPublisher(null, stateSource, executor,
+                DIRECT);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        publisher.close();
+        executor.runAll();
+        assertTrue(subscriber.completed);
+
+        final RecordingSubscriber late = new RecordingSubscriber();
+        publisher.subscribe(late);
+        executor.runAll();
+        assertTrue(late.completed);
+    }
+}
@@ -0,0 +1,118 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Snaps a stick position to one of a number of equal direction sectors and offset steps, D-pad
+ * style, for {@link Joystick.MotionConstraint#DIRECTIONAL}.
+ * Hysteresis keeps the result from flickering while the touch rests near a boundary, so that a
+ * change in the snapped position reliably indicates a deliberate change of input.
+ */
+final class DirectionQuantizer {
+    static final int CENTERED = -1;
+
+    private int directionCount;
+    private int magnitudeSteps;
+    private float hysteresis;
+
+    private float[] directionX, directionY;
+
+    private int direction = CENTERED;
+    private int magnitude;
+
+    DirectionQuantizer(int directionCount, int magnitudeSteps, float hysteresis) {
+        configure(directionCount, magnitudeSteps, hysteresis);
+    }
+
+    /**
+     * @param directionCount Number of sectors, starting with one centered on the positive x axis.
+     * @param magnitudeSteps Number of offset steps beyond the center.
+     * @param hysteresis     Fraction, 0 -> 0.5, of a sector or step that the touch must move past
+     *                       a boundary before the snapped value changes.
+     */
+    void configure(int directionCount, int magnitudeSteps, float hysteresis) {
+        if (directionCount < 1 || magnitudeSteps < 1) {
+            throw new IllegalArgumentException("Direction count and magnitude steps must be positive");
+        }
+        if (hysteresis < 0 || hysteresis > 0.5f) {
+            throw new IllegalArgumentException("Hysteresis must be in the range [0, 0.5]");
+        }
+
+        this.directionCount = directionCount;
+        this.magnitudeSteps = magnitudeSteps;
+        this.hysteresis = hysteresis;
+
+        directionX = new float[directionCount];
+        directionY = new float[directionCount];
+        for (int i = 0; i < directionCount; i++) {
+            final double radians = 2 * Math.PI * i / directionCount;
+            directionX[i] = (float) Math.cos(radians);
+            directionY[i] = (float) -Math.sin(radians);
+        }
+
+        reset();
+    }
+
+    int getDirectionCount() {
+        return directionCount;
+    }
+
+    int getMagnitudeSteps() {
+        return magnitudeSteps;
+    }
+
+    float getHysteresis() {
+        return hysteresis;
+    }
+
+    void reset() {
+        direction = CENTERED;
+        magnitude = 0;
+    }
+
+    /**
+     * @param x   Clamped stick position, y increasing downwards.
+     * @param out Receives the snapped position as {x, y}.
+     * @return True if the snapped direction or magnitude changed.
+     */
+    boolean update(float x, float y, float radius, float[] out) {
+        final float steps = 0 == radius ? 0 :
+                (float) Math.sqrt(x * x + y * y) / radius * magnitudeSteps;
+
+        int newMagnitude = Math.round(steps);
+        if (Math.abs(steps - magnitude) < 0.5f + hysteresis) {
+            newMagnitude = magnitude;
+        }
+
+        int newDirection = CENTERED;
+        if (newMagnitude > 0) {
+            final float sectors = (float) (Math.atan2(-y, x) / (2 * Math.PI) * directionCount);
+            newDirection = floorMod(Math.round(sectors), directionCount);
+
+            if (CENTERED != direction) {
+                float distance = Math.abs(sectors - direction) % directionCount;
+                if (distance > directionCount / 2f) distance = directionCount - distance;
+                if (distance < 0.5f + hysteresis) newDirection = direction;
+            }
+        } else {
+            newMagnitude = 0;
+        }
+
+        final boolean changed = newDirection != direction || newMagnitude != magnitude;
+        direction = newDirection;
+        magnitude = newMagnitude;
+
+        if (CENTERED == direction) {
+            out[0] = 0;
+            out[1] = 0;
+        } else {
+            final float length = radius * magnitude / magnitudeSteps;
+            out[0] = directionX[direction] * length;
+            out[1] = directionY[direction] * length;
+        }
+        return changed;
+    }
+
+    private static int floorMod(int value, int modulus) {
+        final int remainder = value % modulus;
+        return remainder < 0 ? remainder + modulus : remainder;
+    }
+}
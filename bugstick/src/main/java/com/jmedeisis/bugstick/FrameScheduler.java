@@ -0,0 +1,110 @@
+package com.jmedeisis.bugstick;
+
+import android.animation.ValueAnimator;
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * Schedules a single reusable callback for the next display frame.
+ * Uses {@link Choreographer} where available, falling back to posting on the view's handler with
+ * the animation frame delay on older platforms. Posting while already posted is a no-op.
+ */
+abstract class FrameScheduler {
+
+    interface Callback {
+        /**
+         * @param frameTimeNanos Frame start time in the {@link System#nanoTime()} time base.
+         */
+        void onFrame(long frameTimeNanos);
+    }
+
+    protected final Callback callback;
+    private boolean posted;
+
+    static FrameScheduler create(View view, Callback callback) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return new ChoreographerFrameScheduler(callback);
+        }
+        return new HandlerFrameScheduler(view, callback);
+    }
+
+    private FrameScheduler(Callback callback) {
+        this.callback = callback;
+    }
+
+    final boolean isPosted() {
+        return posted;
+    }
+
+    final void post() {
+        if (posted) return;
+        posted = true;
+        onPost();
+    }
+
+    final void cancel() {
+        if (!posted) return;
+        posted = false;
+        onCancel();
+    }
+
+    final void dispatchFrame(long frameTimeNanos) {
+        posted = false;
+        callback.onFrame(frameTimeNanos);
+    }
+
+    protected abstract void onPost();
+
+    protected abstract void onCancel();
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class ChoreographerFrameScheduler extends FrameScheduler
+            implements Choreographer.FrameCallback {
+        private final Choreographer choreographer = Choreographer.getInstance();
+
+        ChoreographerFrameScheduler(Callback callback) {
+            super(callback);
+        }
+
+        @Override
+        protected void onPost() {
+            choreographer.postFrameCallback(this);
+        }
+
+        @Override
+        protected void onCancel() {
+            choreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatchFrame(frameTimeNanos);
+        }
+    }
+
+    private static final class HandlerFrameScheduler extends FrameScheduler implements Runnable {
+        private final View view;
+
+        HandlerFrameScheduler(View view, Callback callback) {
+            super(callback);
+            this.view = view;
+        }
+
+        @Override
+        protected void onPost() {
+            view.postDelayed(this, ValueAnimator.getFrameDelay());
+        }
+
+        @Override
+        protected void onCancel() {
+            view.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            dispatchFrame(System.nanoTime());
+        }
+    }
+}
@@ -3,58 +3,133 @@ package com.jmedeisis.bugstick;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.Gravity;
+import android.view.InputDevice;
+import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.VelocityTracker;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
 
+import java.util.concurrent.Executor;
+
 /**
  * A simple and flexible joystick.
  * Extends FrameLayout and should host one direct child to act as the draggable stick.
+ * Alternatively, a stick {@link Drawable} may be drawn directly by the joystick, in which case no
+ * child is required; see {@link #setStickDrawable(Drawable)}.
  * Use {@link #setJoystickListener(JoystickListener)} to observe user inputs.
+ * <p>
+ * Each instance tracks a single pointer. For multiple sticks in one view, e.g. twin-stick
+ * controls, see {@link JoystickGroup}.
+ * <p>
+ * While focused, the joystick also follows the left analog stick of a game controller and the
+ * D-pad or arrow keys, reporting them to the same listener as touch.
  */
 public class Joystick extends FrameLayout {
     private static final String LOG_TAG = Joystick.class.getSimpleName();
 
-    private static final int STICK_SETTLE_DURATION_MS = 100;
-    private static final Interpolator STICK_SETTLE_INTERPOLATOR = new DecelerateInterpolator();
-
-    private int touchSlop;
+    private static final float DEFAULT_STICK_RETURN_STIFFNESS = 2000f;
+    private static final float DEFAULT_STICK_RETURN_DAMPING_RATIO = 1f;
+    private static final float NANOS_PER_SECOND = 1000000000f;
+    private static final int INITIAL_BATCH_CAPACITY = 8;
 
-    private float centerX, centerY;
-    private float radius;
+    private JoystickCore core;
 
     private View draggedChild;
-    private boolean detectingDrag;
-    private boolean dragInProgress;
 
-    private float downX, downY;
-    private static final int INVALID_POINTER_ID = -1;
-    private int activePointerId = INVALID_POINTER_ID;
+    private Drawable stickDrawable;
+    private int stickSize = -1;
+    private float stickDrawableTranslationX, stickDrawableTranslationY;
 
-    private boolean locked;
+    private final StickSpring stickSpring = new StickSpring(DEFAULT_STICK_RETURN_STIFFNESS,
+            DEFAULT_STICK_RETURN_DAMPING_RATIO);
+    // returns a floating or following origin alongside the stick
+    private final StickSpring originSpring = new StickSpring(DEFAULT_STICK_RETURN_STIFFNESS,
+            DEFAULT_STICK_RETURN_DAMPING_RATIO);
+    private boolean stickReturning;
+    private long stickReturnFrameTime;
 
-    private boolean startOnFirstTouch = true;
     private boolean forceSquare = true;
     private boolean hasFixedRadius = false;
+    private boolean frameSynchronized = false;
 
     public enum MotionConstraint {
         NONE,
         HORIZONTAL,
-        VERTICAL
+        VERTICAL,
+        /**
+         * Snaps the stick to a fixed number of directions and offset steps, like a D-pad.
+         * Listeners are only notified when the snapped position changes.
+         *
+         * @see #setDirectionCount(int)
+         * @see #setMagnitudeSteps(int)
+         * @see #setDirectionHysteresis(float)
+         */
+        DIRECTIONAL
     }
 
-    private MotionConstraint motionConstraint = MotionConstraint.NONE;
+    private final LayoutCache layoutCache = new LayoutCache();
 
     private JoystickListener listener;
+    private JoystickBatchListener batchListener;
+    private JoystickVectorListener vectorListener;
+    private JoystickGestureListener gestureListener;
+
+    private static final JoystickListenerRegistration[] NO_REGISTRATIONS =
+            new JoystickListenerRegistration[0];
+    /**
+     * Copy-on-write, so that dispatch iterates a stable array without locking or allocating.
+     */
+    private JoystickListenerRegistration[] registrations = NO_REGISTRATIONS;
+
+    /*
+    GESTURE DETECTION
+    Only performed while a JoystickGestureListener is set.
+     */
+    private VelocityTracker velocityTracker;
+    private int minimumFlingVelocity, maximumFlingVelocity;
+    private int doubleTapSlop;
+    private boolean touchCanceled;
+    private int gesturePointerId;
+    private long gestureDownTime;
+    private boolean longPressed;
+    private boolean hasPreviousTap;
+    private long previousTapTime;
+    private float previousTapX, previousTapY;
+    private boolean gestureInProgress;
+    private final Runnable longPressCheck = new Runnable() {
+        @Override
+        public void run() {
+            onLongPressTimeout();
+        }
+    };
+
+    private JoystickRecorder recorder;
+    private JoystickMetrics metrics;
+    private long dragEventTime;
+
+    private FrameScheduler frameScheduler;
+    private boolean dragDispatchPending;
+    private long droppedDragCount;
+
+    private final JoystickStatePublisher statePublisher = new JoystickStatePublisher();
+
+    private boolean dpadLeft, dpadRight, dpadUp, dpadDown;
+
+    private float[] batchDegrees = new float[INITIAL_BATCH_CAPACITY];
+    private float[] batchOffsets = new float[INITIAL_BATCH_CAPACITY];
+    private long[] batchEventTimes = new long[INITIAL_BATCH_CAPACITY];
 
     public Joystick(Context context) {
         super(context);
@@ -79,20 +154,80 @@ public class Joystick extends FrameLayout {
     }
 
     private void init(Context context, AttributeSet attrs) {
+        core = new JoystickCore(new JoystickCore.Callback() {
+            @Override
+            public void onStartDetectingDrag(long eventTime) {
+                Joystick.this.onStartDetectingDrag(eventTime);
+            }
+
+            @Override
+            public void onDragStart(long eventTime) {
+                Joystick.this.onDragStart();
+            }
+
+            @Override
+            public void onDrag(long eventTime) {
+                Joystick.this.onDrag(eventTime);
+            }
+
+            @Override
+            public void onDragStop(long eventTime, boolean locked) {
+                Joystick.this.onDragStop(locked);
+            }
+
+            @Override
+            public void onStopDetectingDrag(long eventTime, boolean locked) {
+                Joystick.this.onStopDetectingDrag(eventTime, locked);
+            }
+        });
+
         final ViewConfiguration configuration = ViewConfiguration.get(context);
-        touchSlop = configuration.getScaledTouchSlop();
+        core.setTouchSlop(configuration.getScaledTouchSlop());
+        minimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        maximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        doubleTapSlop = configuration.getScaledDoubleTapSlop();
+
+        frameScheduler = FrameScheduler.create(this, new FrameScheduler.Callback() {
+            @Override
+            public void onFrame(long frameTimeNanos) {
+                Joystick.this.onFrame(frameTimeNanos);
+            }
+        });
 
         if (null != attrs) {
             TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.Joystick);
-            startOnFirstTouch = a.getBoolean(R.styleable.Joystick_start_on_first_touch, startOnFirstTouch);
+            core.setStartOnFirstTouch(a.getBoolean(R.styleable.Joystick_start_on_first_touch,
+                    core.isStartOnFirstTouch()));
             forceSquare = a.getBoolean(R.styleable.Joystick_force_square, forceSquare);
             hasFixedRadius = a.hasValue(R.styleable.Joystick_radius);
             if (hasFixedRadius) {
-                radius = a.getDimensionPixelOffset(R.styleable.Joystick_radius, (int) radius);
+                core.setRadius(a.getDimensionPixelOffset(R.styleable.Joystick_radius,
+                        (int) core.getRadius()));
+            }
+            core.setMotionConstraint(MotionConstraint.values()[a.getInt(
+                    R.styleable.Joystick_motion_constraint, core.getMotionConstraint().ordinal())]);
+            core.setOriginMode(OriginMode.values()[a.getInt(
+                    R.styleable.Joystick_origin_mode, core.getOriginMode().ordinal())]);
+            core.setPredictionTime(a.getInt(R.styleable.Joystick_prediction_time,
+                    core.getPredictionTime()));
+            frameSynchronized = a.getBoolean(R.styleable.Joystick_frame_synchronized, frameSynchronized);
+            stickSize = a.getDimensionPixelSize(R.styleable.Joystick_stick_size, stickSize);
+            core.setDirections(
+                    a.getInt(R.styleable.Joystick_direction_count, core.getDirectionCount()),
+                    a.getInt(R.styleable.Joystick_magnitude_steps, core.getMagnitudeSteps()),
+                    a.getFloat(R.styleable.Joystick_direction_hysteresis,
+                            core.getDirectionHysteresis()));
+            final float deadZone = a.getFloat(R.styleable.Joystick_dead_zone, 0);
+            final float axialDeadZone = a.getFloat(R.styleable.Joystick_axial_dead_zone, 0);
+            final float responseExponent = a.getFloat(R.styleable.Joystick_response_exponent, 1);
+            if (0 != deadZone || 0 != axialDeadZone || 1 != responseExponent) {
+                core.setResponseCurve(ResponseCurve.exponential(deadZone, axialDeadZone,
+                        responseExponent));
             }
-            motionConstraint = MotionConstraint.values()[a.getInt(R.styleable.Joystick_motion_constraint,
-                    motionConstraint.ordinal())];
+            final Drawable drawable = a.getDrawable(R.styleable.Joystick_stick_drawable);
             a.recycle();
+
+            if (null != drawable) setStickDrawable(drawable);
         }
     }
 
@@ -105,50 +240,249 @@ public class Joystick extends FrameLayout {
     public void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
 
-        centerX = (float) w / 2;
-        centerY = (float) h / 2;
+        core.setCenter((float) w / 2, (float) h / 2);
     }
 
     @Override
     public void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
 
-        if (changed && !hasFixedRadius) {
+        // not just when changed, as the stick may have been resized within unchanged bounds
+        if (!hasFixedRadius) {
             recalculateRadius(right - left, bottom - top);
         }
     }
 
     private void recalculateRadius(int width, int height) {
-        float stickHalfWidth = 0;
-        float stickHalfHeight = 0;
-        if (hasStick()) {
+        float stickWidth = 0;
+        float stickHeight = 0;
+        if (hasStickChild()) {
             final View stick = getChildAt(0);
-            stickHalfWidth = (float) stick.getWidth() / 2;
-            stickHalfHeight = (float) stick.getHeight() / 2;
+            stickWidth = stick.getWidth();
+            stickHeight = stick.getHeight();
+        } else if (null != stickDrawable) {
+            stickWidth = getStickDrawableWidth();
+            stickHeight = getStickDrawableHeight();
         }
 
-        switch (motionConstraint) {
-            case NONE:
-                radius = (float) Math.min(width, height) / 2 - Math.max(stickHalfWidth, stickHalfHeight);
-                break;
-            case HORIZONTAL:
-                radius = (float) width / 2 - stickHalfWidth;
-                break;
-            case VERTICAL:
-                radius = (float) height / 2 - stickHalfHeight;
-                break;
-        }
+        final MotionConstraint motionConstraint = core.getMotionConstraint();
+        if (layoutCache.hasRadius(width, height, stickWidth, stickHeight, motionConstraint)) return;
+
+        core.setRadius(StickGeometry.radius(motionConstraint, width, height, stickWidth,
+                stickHeight));
+        layoutCache.storeRadius(width, height, stickWidth, stickHeight, motionConstraint);
     }
 
     public void setJoystickListener(JoystickListener listener) {
         this.listener = listener;
+        this.batchListener = listener instanceof JoystickBatchListener ?
+                (JoystickBatchListener) listener : null;
+        this.vectorListener = listener instanceof JoystickVectorListener ?
+                (JoystickVectorListener) listener : null;
+        this.gestureListener = listener instanceof JoystickGestureListener ?
+                (JoystickGestureListener) listener : null;
 
         if (!hasStick()) {
             Log.w(LOG_TAG, LOG_TAG + " has no draggable stick, and is therefore not functional. " +
-                    "Consider adding a child view to act as the stick.");
+                    "Consider adding a child view or a stick drawable to act as the stick.");
         }
     }
 
+    /**
+     * Adds a listener that is called directly on the UI thread, in addition to the one set with
+     * {@link #setJoystickListener(JoystickListener)}. Must be called on the UI thread.
+     *
+     * @see #addJoystickListener(JoystickListener, Executor, int)
+     */
+    @SuppressWarnings("unused")
+    public void addJoystickListener(@NonNull JoystickListener listener) {
+        addJoystickListener(listener, null, 0);
+    }
+
+    /**
+     * Adds a listener in addition to the one set with {@link #setJoystickListener(JoystickListener)},
+     * e.g. for audio, physics or analytics.
+     * Drag updates are conflated: a listener that cannot keep up, or is rate limited, receives
+     * only the latest stick position, so it never delays touch handling or other listeners.
+     * {@link JoystickListener#onDown()} and {@link JoystickListener#onUp()} are always delivered.
+     * {@link JoystickVectorListener}s receive vectors; batch and gesture callbacks are only
+     * delivered to the listener set with {@link #setJoystickListener(JoystickListener)}.
+     * Must be called on the UI thread, as must {@link #removeJoystickListener(JoystickListener)}.
+     *
+     * @param executor            Runs the callbacks, e.g. a background thread or a Handler's
+     *                            {@code post}, or null to call them directly on the UI thread.
+     * @param maxUpdatesPerSecond Maximum rate of {@link JoystickListener#onDrag(float, float)}
+     *                            calls, or 0 for no limit.
+     */
+    @SuppressWarnings("unused")
+    public void addJoystickListener(@NonNull JoystickListener listener, Executor executor,
+                                    int maxUpdatesPerSecond) {
+        final JoystickListenerRegistration registration = new JoystickListenerRegistration(
+                listener, executor, maxUpdatesPerSecond, this);
+
+        final int count = registrations.length;
+        final JoystickListenerRegistration[] newRegistrations =
+                new JoystickListenerRegistration[count + 1];
+        System.arraycopy(registrations, 0, newRegistrations, 0, count);
+        newRegistrations[count] = registration;
+        registrations = newRegistrations;
+    }
+
+    /**
+     * Removes a listener added with {@link #addJoystickListener}. Callbacks already handed to its
+     * executor may still be delivered. Must be called on the UI thread.
+     */
+    @SuppressWarnings("unused")
+    public void removeJoystickListener(JoystickListener listener) {
+        final int count = registrations.length;
+        for (int i = 0; i < count; i++) {
+            if (registrations[i].listener != listener) continue;
+
+            registrations[i].cancel();
+            final JoystickListenerRegistration[] newRegistrations = 1 == count ? NO_REGISTRATIONS :
+                    new JoystickListenerRegistration[count - 1];
+            System.arraycopy(registrations, 0, newRegistrations, 0, i);
+            System.arraycopy(registrations, i + 1, newRegistrations, i, count - i - 1);
+            registrations = newRegistrations;
+            return;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public int getPredictionTime() {
+        return core.getPredictionTime();
+    }
+
+    /**
+     * @param predictionTime Time in milliseconds to extrapolate the reported stick position ahead
+     *                       of the latest touch sample, based on the recent velocity of the finger.
+     *                       Compensates for input latency at the expense of occasional overshoot.
+     *                       0 (default) disables prediction.
+     */
+    @SuppressWarnings("unused")
+    public void setPredictionTime(int predictionTime) {
+        core.setPredictionTime(predictionTime);
+    }
+
+    @SuppressWarnings("unused")
+    public ResponseCurve getResponseCurve() {
+        return core.getResponseCurve();
+    }
+
+    /**
+     * @param responseCurve Shapes the reported offset, e.g. to add dead zones or finer control
+     *                      near the center. Does not affect the visual stick position. If null
+     *                      (default), the reported offset is linear in the stick position.
+     */
+    @SuppressWarnings("unused")
+    public void setResponseCurve(ResponseCurve responseCurve) {
+        core.setResponseCurve(responseCurve);
+    }
+
+    @SuppressWarnings("unused")
+    public JoystickRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @param recorder Receives the touch input and resulting listener callbacks of this joystick,
+     *                 or null (default) to stop recording.
+     */
+    @SuppressWarnings("unused")
+    public void setRecorder(JoystickRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @SuppressWarnings("unused")
+    public JoystickMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics Receives timings and counts from this joystick's touch handling, or null
+     *                (default) to disable instrumentation entirely.
+     */
+    @SuppressWarnings("unused")
+    public void setMetrics(JoystickMetrics metrics) {
+        this.metrics = metrics;
+        core.setMetrics(metrics);
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isFrameSynchronized() {
+        return frameSynchronized;
+    }
+
+    /**
+     * @param frameSynchronized If true, drag updates are coalesced and
+     *                          {@link JoystickListener#onDrag(float, float)} is called at most once
+     *                          per display frame with the latest stick position. Useful when the
+     *                          listener does expensive work such as updating other views.
+     *                          {@link JoystickBatchListener}s always receive every sample.
+     */
+    @SuppressWarnings("unused")
+    public void setFrameSynchronized(boolean frameSynchronized) {
+        this.frameSynchronized = frameSynchronized;
+
+        if (!frameSynchronized) flushDragDispatch();
+    }
+
+    /**
+     * @return Number of drag updates superseded by a later one within the same frame, and so never
+     * delivered, while {@link #isFrameSynchronized() frame synchronized}.
+     */
+    @SuppressWarnings("unused")
+    public long getDroppedDragCount() {
+        return droppedDragCount;
+    }
+
+    @SuppressWarnings("unused")
+    public Drawable getStickDrawable() {
+        return stickDrawable;
+    }
+
+    /**
+     * @param drawable Drawn by the joystick itself as the stick when it has no child view, which
+     *                 avoids a per-frame child translation and display list update while dragging.
+     *                 Receives the pressed state while the stick is held.
+     */
+    @SuppressWarnings("unused")
+    public void setStickDrawable(Drawable drawable) {
+        if (stickDrawable == drawable) return;
+
+        if (null != stickDrawable) stickDrawable.setCallback(null);
+        stickDrawable = drawable;
+        if (null != drawable) {
+            drawable.setCallback(this);
+            if (drawable.isStateful()) drawable.setState(getStickDrawableState());
+        }
+
+        setWillNotDraw(null == drawable);
+        if (!hasFixedRadius) recalculateRadius(getWidth(), getHeight());
+        invalidate();
+    }
+
+    /**
+     * @param stickSize Size in pixels of the stick drawable, or -1 to use its intrinsic size.
+     */
+    @SuppressWarnings("unused")
+    public void setStickSize(int stickSize) {
+        this.stickSize = stickSize;
+
+        if (!hasFixedRadius) recalculateRadius(getWidth(), getHeight());
+        invalidate();
+    }
+
+    /**
+     * Copies the latest stick state into the given instance without locking.
+     * Unlike {@link JoystickListener} callbacks, this may be called from any thread, e.g. a render
+     * or game loop that polls input once per tick.
+     */
+    @SuppressWarnings("unused")
+    public void getState(@NonNull JoystickState out) {
+        statePublisher.read(out);
+    }
+
     /**
      * Locks the stick position when next the user releases it.
      * Note that {@link JoystickListener#onUp()} will not be called upon release.
@@ -156,7 +490,7 @@ public class Joystick extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void lock() {
-        locked = true;
+        core.lock();
     }
 
     /**
@@ -165,7 +499,7 @@ public class Joystick extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public int getTouchSlop() {
-        return touchSlop;
+        return core.getTouchSlop();
     }
 
     /**
@@ -174,24 +508,114 @@ public class Joystick extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setTouchSlop(int touchSlop) {
-        this.touchSlop = touchSlop;
+        core.setTouchSlop(touchSlop);
     }
 
     @SuppressWarnings("unused")
     public MotionConstraint getMotionConstraint() {
-        return motionConstraint;
+        return core.getMotionConstraint();
     }
 
     @SuppressWarnings("unused")
     public void setMotionConstraint(MotionConstraint motionConstraint) {
-        this.motionConstraint = motionConstraint;
+        if (core.getMotionConstraint() == motionConstraint) return;
+        core.setMotionConstraint(motionConstraint);
 
         if (!hasFixedRadius) recalculateRadius(getWidth(), getHeight());
     }
 
+    @SuppressWarnings("unused")
+    public OriginMode getOriginMode() {
+        return core.getOriginMode();
+    }
+
+    /**
+     * @param originMode Where the stick offset is measured from. Defaults to
+     *                   {@link OriginMode#FIXED}. The stick is drawn relative to the origin, and
+     *                   returns to the center once released.
+     */
+    @SuppressWarnings("unused")
+    public void setOriginMode(OriginMode originMode) {
+        core.setOriginMode(originMode);
+    }
+
+    @SuppressWarnings("unused")
+    public int getDirectionCount() {
+        return core.getDirectionCount();
+    }
+
+    /**
+     * @param directionCount Number of directions the stick snaps to under
+     *                       {@link MotionConstraint#DIRECTIONAL}, e.g. 4 or 8 (default). The first
+     *                       is centered on 0 degrees.
+     */
+    @SuppressWarnings("unused")
+    public void setDirectionCount(int directionCount) {
+        core.setDirections(directionCount, core.getMagnitudeSteps(),
+                core.getDirectionHysteresis());
+    }
+
+    @SuppressWarnings("unused")
+    public int getMagnitudeSteps() {
+        return core.getMagnitudeSteps();
+    }
+
+    /**
+     * @param magnitudeSteps Number of offset steps beyond the center the stick snaps to under
+     *                       {@link MotionConstraint#DIRECTIONAL}. 1 (default) reports either no
+     *                       offset or full offset.
+     */
+    @SuppressWarnings("unused")
+    public void setMagnitudeSteps(int magnitudeSteps) {
+        core.setDirections(core.getDirectionCount(), magnitudeSteps,
+                core.getDirectionHysteresis());
+    }
+
+    @SuppressWarnings("unused")
+    public float getDirectionHysteresis() {
+        return core.getDirectionHysteresis();
+    }
+
+    /**
+     * @param hysteresis Fraction, 0 -> 0.5, of a direction sector or magnitude step that the touch
+     *                   must move past a boundary before the snapped value changes under
+     *                   {@link MotionConstraint#DIRECTIONAL}. Defaults to 0.1.
+     */
+    @SuppressWarnings("unused")
+    public void setDirectionHysteresis(float hysteresis) {
+        core.setDirections(core.getDirectionCount(), core.getMagnitudeSteps(), hysteresis);
+    }
+
+    @SuppressWarnings("unused")
+    public float getStickReturnStiffness() {
+        return stickSpring.getStiffness();
+    }
+
+    @SuppressWarnings("unused")
+    public float getStickReturnDampingRatio() {
+        return stickSpring.getDampingRatio();
+    }
+
+    /**
+     * Configures the spring that returns the stick to the center on release. While returning,
+     * {@link JoystickListener#onDrag(float, float)} continues to report the stick position once per
+     * frame, and {@link JoystickListener#onUp()} is called when the stick comes to rest. A new touch
+     * interrupts the return.
+     *
+     * @param stiffness    Spring constant per unit mass, in 1/s^2. Higher values return faster.
+     *                     Defaults to 2000.
+     * @param dampingRatio 1 (default) returns as fast as possible without overshoot; lower values
+     *                     let the stick oscillate around the center.
+     */
+    @SuppressWarnings("unused")
+    public void setStickReturnSpring(float stiffness, float dampingRatio) {
+        stickSpring.configure(stiffness, dampingRatio);
+        originSpring.configure(stiffness, dampingRatio);
+    }
+
     @SuppressWarnings("unused")
     public float getRadius() {
-        return radius;
+        return core.getRadius();
     }
 
     /**
@@ -199,12 +623,12 @@ public class Joystick extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setRadius(float radius) {
-        this.radius = radius;
+        core.setRadius(radius);
     }
 
     @SuppressWarnings("unused")
     public boolean isStartOnFirstTouch() {
-        return startOnFirstTouch;
+        return core.isStartOnFirstTouch();
     }
 
     /**
@@ -214,203 +638,674 @@ public class Joystick extends FrameLayout {
      */
     @SuppressWarnings("unused")
     public void setStartOnFirstTouch(boolean startOnFirstTouch) {
-        this.startOnFirstTouch = startOnFirstTouch;
+        core.setStartOnFirstTouch(startOnFirstTouch);
     }
 
     /*
     TOUCH EVENT HANDLING
      */
     @Override
-    public boolean onInterceptTouchEvent(MotionEvent event) {
-        if (!isEnabled()) return false;
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (null != metrics) metrics.onEvent(System.nanoTime());
+        if (null != recorder) recordTouch(event);
+        if (null != gestureListener) trackVelocity(event);
+        touchCanceled = MotionEvent.ACTION_CANCEL == event.getActionMasked();
 
-        switch (event.getActionMasked()) {
-            case MotionEvent.ACTION_DOWN: {
-                if (detectingDrag || !hasStick()) return false;
+        return super.dispatchTouchEvent(event);
+    }
 
-                downX = event.getX(0);
-                downY = event.getY(0);
-                activePointerId = event.getPointerId(0);
+    private void trackVelocity(MotionEvent event) {
+        if (null == velocityTracker) velocityTracker = VelocityTracker.obtain();
+        if (MotionEvent.ACTION_DOWN == event.getActionMasked()) velocityTracker.clear();
+        velocityTracker.addMovement(event);
+    }
 
-                onStartDetectingDrag();
-                break;
-            }
-            case MotionEvent.ACTION_MOVE: {
-                if (INVALID_POINTER_ID == activePointerId) break;
-                if (detectingDrag && dragExceedsSlop(event)) {
-                    onDragStart();
-                    return true;
-                }
-                break;
-            }
-            case MotionEvent.ACTION_POINTER_UP: {
-                final int pointerIndex = event.getActionIndex();
-                final int pointerId = event.getPointerId(pointerIndex);
+    private void recordTouch(MotionEvent event) {
+        final int action = event.getActionMasked();
+        if (MotionEvent.ACTION_MOVE != action) {
+            final int pointerIndex = event.getActionIndex();
+            recorder.recordTouch(action, event.getPointerId(pointerIndex),
+                    event.getX(pointerIndex), event.getY(pointerIndex), event.getEventTime());
+            return;
+        }
 
-                if (pointerId != activePointerId)
-                    break; // if active pointer, fall through and cancel!
-            }
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP: {
-                onTouchEnded();
+        int pointerIndex = event.findPointerIndex(core.getActivePointerId());
+        if (pointerIndex < 0) pointerIndex = 0;
+        final int pointerId = event.getPointerId(pointerIndex);
 
-                onStopDetectingDrag();
-                break;
-            }
+        final int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            recorder.recordTouch(action, pointerId, event.getHistoricalX(pointerIndex, h),
+                    event.getHistoricalY(pointerIndex, h), event.getHistoricalEventTime(h));
+        }
+        recorder.recordTouch(action, pointerId, event.getX(pointerIndex), event.getY(pointerIndex),
+                event.getEventTime());
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        if (!isEnabled()) return false;
+        if (null != metrics) metrics.onInterceptedEvent();
+
+        final int action = event.getActionMasked();
+        if (MotionEvent.ACTION_DOWN == action) {
+            if (core.isDetectingDrag() || !hasStick()) return false;
+            if (stickReturning) finishStickReturn(event.getEventTime());
         }
 
-        return false;
+        final int pointerIndex = getCorePointerIndex(event, action);
+        if (pointerIndex < 0) return false;
+
+        return core.onInterceptTouchEvent(action, event.getPointerId(pointerIndex),
+                event.getX(pointerIndex), event.getY(pointerIndex), event.getEventTime());
     }
 
     @Override
     public boolean onTouchEvent(@NonNull MotionEvent event) {
         if (!isEnabled()) return false;
+        if (null != metrics) metrics.onDirectEvent();
+
+        final int action = event.getActionMasked();
+        final int pointerIndex = getCorePointerIndex(event, action);
+        if (pointerIndex < 0) return false;
 
-        switch (event.getActionMasked()) {
-            case MotionEvent.ACTION_DOWN: {
-                if (!detectingDrag) return false;
-                if (startOnFirstTouch) onDragStart();
+        if (MotionEvent.ACTION_MOVE == action && core.isDragInProgress()) {
+            if (null != batchListener) {
+                onDragBatch(event, pointerIndex);
                 return true;
             }
-            case MotionEvent.ACTION_MOVE: {
-                if (INVALID_POINTER_ID == activePointerId) break;
-
-                if (dragInProgress) {
-                    int pointerIndex = event.findPointerIndex(activePointerId);
-                    float latestX = event.getX(pointerIndex);
-                    float latestY = event.getY(pointerIndex);
-
-                    float deltaX = latestX - downX;
-                    float deltaY = latestY - downY;
-
-                    onDrag(deltaX, deltaY);
-                    return true;
-                } else if (detectingDrag && dragExceedsSlop(event)) {
-                    onDragStart();
-                    return true;
-                }
-                break;
-            }
-            case MotionEvent.ACTION_POINTER_UP: {
-                final int pointerIndex = event.getActionIndex();
-                final int pointerId = event.getPointerId(pointerIndex);
 
-                if (pointerId != activePointerId)
-                    break; // if active pointer, fall through and cancel!
-            }
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP: {
-                onTouchEnded();
-
-                if (dragInProgress) {
-                    onDragStop();
-                } else {
-                    onStopDetectingDrag();
+            if (core.getPredictionTime() > 0) {
+                final int historySize = event.getHistorySize();
+                for (int h = 0; h < historySize; h++) {
+                    core.addHistoricalSample(event.getHistoricalX(pointerIndex, h),
+                            event.getHistoricalY(pointerIndex, h), event.getHistoricalEventTime(h));
                 }
-                return true;
             }
         }
 
-        return false;
+        return core.onTouchEvent(action, event.getPointerId(pointerIndex),
+                event.getX(pointerIndex), event.getY(pointerIndex), event.getEventTime());
     }
 
-    private boolean dragExceedsSlop(MotionEvent event) {
-        final int pointerIndex = event.findPointerIndex(activePointerId);
-        final float x = event.getX(pointerIndex);
-        final float y = event.getY(pointerIndex);
-        final float dx = Math.abs(x - downX);
-        final float dy = Math.abs(y - downY);
-
-        switch (motionConstraint) {
-            case NONE:
-                return dx * dx + dy * dy > touchSlop * touchSlop;
-            case HORIZONTAL:
-                return dx > touchSlop;
-            case VERTICAL:
-                return dy > touchSlop;
+    /**
+     * @return Index of the pointer whose coordinates the core needs for the given action, or -1 if
+     * a move does not concern the active pointer, e.g. as it was split off to another view.
+     */
+    private int getCorePointerIndex(MotionEvent event, int action) {
+        if (MotionEvent.ACTION_MOVE == action) {
+            return event.findPointerIndex(core.getActivePointerId());
         }
-        return false;
+        return event.getActionIndex();
     }
 
-    private void onTouchEnded() {
-        activePointerId = INVALID_POINTER_ID;
+    private boolean hasStick() {
+        return hasStickChild() || null != stickDrawable;
     }
 
-    private boolean hasStick() {
+    private boolean hasStickChild() {
         return getChildCount() > 0;
     }
 
-    private void onStartDetectingDrag() {
-        detectingDrag = true;
-        if (null != listener) listener.onDown();
+    private void onStartDetectingDrag(long eventTime) {
+        updateStickDrawableState();
+        publishState(eventTime);
+        if (null != recorder) recorder.recordDown(eventTime);
+        if (null != listener) {
+            final long start = null != metrics ? System.nanoTime() : 0;
+            listener.onDown();
+            if (null != metrics) metrics.onListenerReturned(start, eventTime);
+        }
+        final JoystickListenerRegistration[] registrations = this.registrations;
+        for (JoystickListenerRegistration registration : registrations) registration.onDown();
+        if (null != gestureListener && JoystickCore.INVALID_POINTER_ID != core.getActivePointerId()) {
+            onGestureStart(eventTime);
+        }
     }
 
-    private void onStopDetectingDrag() {
-        detectingDrag = false;
-        if (!locked && null != listener) listener.onUp();
+    private void onStopDetectingDrag(long eventTime, boolean locked) {
+        flushDragDispatch();
+        if (gestureInProgress) onGestureEnd(eventTime);
+        updateStickDrawableState();
+        if (!locked && !stickReturning) {
+            core.centerStick();
+            publishState(eventTime);
+            notifyUp(eventTime);
+        } else {
+            publishState(eventTime);
+        }
 
-        locked = false;
+        if (!stickReturning) draggedChild = null;
+    }
+
+    private void notifyUp(long eventTime) {
+        if (null != recorder) recorder.recordUp(eventTime);
+        if (null != listener) {
+            final long start = null != metrics ? System.nanoTime() : 0;
+            listener.onUp();
+            if (null != metrics) metrics.onListenerReturned(start, eventTime);
+        }
+        final JoystickListenerRegistration[] registrations = this.registrations;
+        for (JoystickListenerRegistration registration : registrations) registration.onUp();
     }
 
     private void onDragStart() {
-        dragInProgress = true;
-        draggedChild = getChildAt(0);
-        draggedChild.animate().cancel();
-        onDrag(0, 0);
+        draggedChild = hasStickChild() ? getChildAt(0) : null;
+    }
+
+    private void onDragStop(boolean locked) {
+        if (gestureInProgress && !touchCanceled) detectFlick();
+
+        if (!locked && MotionConstraint.DIRECTIONAL != core.getMotionConstraint()
+                && (0 != core.getStickX() || 0 != core.getStickY()
+                || core.getOriginX() != core.getCenterX()
+                || core.getOriginY() != core.getCenterY())) {
+            startStickReturn();
+        } else if (!locked) {
+            core.centerStick();
+            applyStickTranslation();
+        }
     }
 
-    private void onDragStop() {
-        dragInProgress = false;
+    /*
+    GAME CONTROLLER AND KEY INPUT
+    Fed into the same constraint, clamp and dispatch path as touch.
+     */
+    @Override
+    public boolean onGenericMotionEvent(MotionEvent event) {
+        if (!isEnabled() || MotionEvent.ACTION_MOVE != event.getActionMasked()
+                || (event.getSource() & InputDevice.SOURCE_JOYSTICK) != InputDevice.SOURCE_JOYSTICK) {
+            return super.onGenericMotionEvent(event);
+        }
+
+        final InputDevice device = event.getDevice();
+        final int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            onControllerSample(event, device, h, event.getHistoricalEventTime(h));
+        }
+        onControllerSample(event, device, -1, event.getEventTime());
+        return true;
+    }
 
-        if (!locked) {
-            draggedChild.animate()
-                    .translationX(0).translationY(0)
-                    .setDuration(STICK_SETTLE_DURATION_MS)
-                    .setInterpolator(STICK_SETTLE_INTERPOLATOR)
-                    .start();
+    /**
+     * @param historyPosition Index of the historical sample, or -1 for the current one.
+     */
+    private void onControllerSample(MotionEvent event, InputDevice device, int historyPosition,
+                                    long eventTime) {
+        float x = getCenteredAxis(event, device, MotionEvent.AXIS_X, historyPosition);
+        float y = getCenteredAxis(event, device, MotionEvent.AXIS_Y, historyPosition);
+        if (0 == x && 0 == y) {
+            // controllers without an analog stick commonly report their D-pad as a hat
+            x = getCenteredAxis(event, device, MotionEvent.AXIS_HAT_X, historyPosition);
+            y = getCenteredAxis(event, device, MotionEvent.AXIS_HAT_Y, historyPosition);
         }
 
-        onStopDetectingDrag();
+        onAxisEvent(x, y, eventTime);
+    }
+
+    /**
+     * @return The axis value, or 0 within the flat region where a centered stick may rest.
+     */
+    private static float getCenteredAxis(MotionEvent event, InputDevice device, int axis,
+                                         int historyPosition) {
+        if (null == device) return 0;
+        final InputDevice.MotionRange range = device.getMotionRange(axis, event.getSource());
+        if (null == range) return 0;
+
+        final float value = historyPosition < 0 ? event.getAxisValue(axis) :
+                event.getHistoricalAxisValue(axis, historyPosition);
+        return Math.abs(value) > range.getFlat() ? value : 0;
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (!isEnabled() || !setDpadKey(keyCode, true)) return super.onKeyDown(keyCode, event);
+
+        if (0 == event.getRepeatCount()) onDpadChanged(event.getEventTime());
+        return true;
+    }
+
+    @Override
+    public boolean onKeyUp(int keyCode, KeyEvent event) {
+        if (!setDpadKey(keyCode, false)) return super.onKeyUp(keyCode, event);
+
+        onDpadChanged(event.getEventTime());
+        return true;
+    }
+
+    /**
+     * @return False if the key is not a direction key.
+     */
+    private boolean setDpadKey(int keyCode, boolean pressed) {
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+                dpadLeft = pressed;
+                return true;
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+                dpadRight = pressed;
+                return true;
+            case KeyEvent.KEYCODE_DPAD_UP:
+                dpadUp = pressed;
+                return true;
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+                dpadDown = pressed;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+
+        // key ups are no longer delivered, so release any held direction
+        if (!gainFocus && (dpadLeft || dpadRight || dpadUp || dpadDown)) {
+            dpadLeft = dpadRight = dpadUp = dpadDown = false;
+            onDpadChanged(SystemClock.uptimeMillis());
+        }
+    }
+
+    private void onDpadChanged(long eventTime) {
+        // diagonals are clamped to the radius like any other position
+        final float x = (dpadRight ? 1 : 0) - (dpadLeft ? 1 : 0);
+        final float y = (dpadDown ? 1 : 0) - (dpadUp ? 1 : 0);
+        onAxisEvent(x, y, eventTime);
+    }
+
+    private void onAxisEvent(float x, float y, long eventTime) {
+        // like a touch down, a press completes the previous gesture's return before it starts
+        if (stickReturning && (0 != x || 0 != y)) finishStickReturn(eventTime);
+        core.onAxisEvent(x, y, eventTime);
+    }
+
+    /**
+     * Moves the stick as reported by a {@link TiltSource}.
+     */
+    void onTilt(float x, float y, long eventTime) {
+        onAxisEvent(x, y, eventTime);
+    }
+
+    /*
+    GESTURES
+    Fed by the same touch handling as the stick, so that each event is only processed once.
+     */
+    private void onGestureStart(long eventTime) {
+        gesturePointerId = core.getActivePointerId();
+        gestureDownTime = eventTime;
+        gestureInProgress = true;
+        longPressed = false;
+        postDelayed(longPressCheck, ViewConfiguration.getLongPressTimeout());
+    }
+
+    private void onLongPressTimeout() {
+        if (null == gestureListener || !core.isDetectingDrag() || core.hasExceededSlop()) return;
+
+        longPressed = true;
+        gestureListener.onLongPress();
+    }
+
+    private void detectFlick() {
+        if (null == gestureListener || null == velocityTracker || 0 == core.getRadius()) return;
+
+        velocityTracker.computeCurrentVelocity(1000, maximumFlingVelocity);
+        final float velocityX = velocityTracker.getXVelocity(gesturePointerId);
+        final float velocityY = velocityTracker.getYVelocity(gesturePointerId);
+        final float speed = (float) Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+        if (speed < minimumFlingVelocity) return;
+
+        gestureListener.onFlick(StickGeometry.degrees(velocityX, velocityY),
+                speed / core.getRadius());
+    }
+
+    private void onGestureEnd(long eventTime) {
+        removeCallbacks(longPressCheck);
+        gestureInProgress = false;
+        if (null == gestureListener || touchCanceled || longPressed || core.hasExceededSlop()) {
+            hasPreviousTap = false;
+            return;
+        }
+
+        gestureListener.onTap();
+
+        final float dx = core.getDownX() - previousTapX;
+        final float dy = core.getDownY() - previousTapY;
+        if (hasPreviousTap
+                && gestureDownTime - previousTapTime <= ViewConfiguration.getDoubleTapTimeout()
+                && dx * dx + dy * dy <= doubleTapSlop * doubleTapSlop) {
+            hasPreviousTap = false;
+            gestureListener.onDoubleTap();
+        } else {
+            hasPreviousTap = true;
+            previousTapTime = eventTime;
+            previousTapX = core.getDownX();
+            previousTapY = core.getDownY();
+        }
+    }
+
+    /*
+    STICK RETURN
+    Stepped on the frame clock rather than animated, so that the listener keeps receiving the
+    stick position until it comes to rest.
+     */
+    private void startStickReturn() {
+        // springs are linear, so the drawn stick follows a single spring from where it was released
+        stickSpring.start(core.getStickX(), core.getStickY());
+        originSpring.start(core.getOriginX() - core.getCenterX(),
+                core.getOriginY() - core.getCenterY());
+        stickReturning = true;
+        stickReturnFrameTime = 0;
+        frameScheduler.post();
+    }
+
+    private void stepStickReturn(long frameTimeNanos) {
+        if (0 == stickReturnFrameTime) {
+            // first frame after release; start timing from here
+            stickReturnFrameTime = frameTimeNanos;
+            frameScheduler.post();
+            return;
+        }
+
+        final float seconds = (frameTimeNanos - stickReturnFrameTime) / NANOS_PER_SECOND;
+        stickReturnFrameTime = frameTimeNanos;
+
+        final boolean stickMoving = stickSpring.step(seconds);
+        if (!originSpring.step(seconds) && !stickMoving) {
+            finishStickReturn(SystemClock.uptimeMillis());
+            return;
+        }
+
+        core.setOrigin(core.getCenterX() + originSpring.getX(),
+                core.getCenterY() + originSpring.getY());
+        core.setStickPosition(stickSpring.getX(), stickSpring.getY());
+
+        final long eventTime = SystemClock.uptimeMillis();
+        publishState(eventTime);
+        dragEventTime = eventTime;
+        if (null != batchListener) {
+            batchDegrees[0] = core.getDegrees();
+            batchOffsets[0] = core.getOffset();
+            batchEventTimes[0] = eventTime;
+            dispatchDragBatch(1);
+        } else {
+            dispatchDrag();
+        }
+        applyStickTranslation();
+
+        frameScheduler.post();
+    }
+
+    /**
+     * Snaps the stick to the center and completes the gesture with
+     * {@link JoystickListener#onUp()}.
+     */
+    private void finishStickReturn(long eventTime) {
+        stickReturning = false;
+
+        core.centerStick();
+        applyStickTranslation();
         draggedChild = null;
+
+        publishState(eventTime);
+        notifyUp(eventTime);
+    }
+
+    private void onDrag(long eventTime) {
+        publishState(eventTime);
+        dragEventTime = eventTime;
+
+        if (null != batchListener) {
+            batchDegrees[0] = core.getDegrees();
+            batchOffsets[0] = core.getOffset();
+            batchEventTimes[0] = eventTime;
+            dispatchDragBatch(1);
+        } else if (frameSynchronized) {
+            if (dragDispatchPending) {
+                droppedDragCount++;
+            } else {
+                dragDispatchPending = true;
+                frameScheduler.post();
+            }
+        } else {
+            dispatchDrag();
+        }
+
+        applyStickTranslation();
+    }
+
+    /**
+     * Delivers the historical samples batched into a move event along with the latest sample,
+     * oldest first, in a single {@link JoystickBatchListener#onDragBatch} call.
+     * Only the latest sample is subject to prediction, and samples that leave a
+     * {@link MotionConstraint#DIRECTIONAL} stick unchanged are skipped.
+     */
+    private void onDragBatch(MotionEvent event, int pointerIndex) {
+        final int historySize = event.getHistorySize();
+        ensureBatchCapacity(historySize + 1);
+
+        int count = 0;
+        for (int h = 0; h < historySize; h++) {
+            final long eventTime = event.getHistoricalEventTime(h);
+            if (!core.sampleDrag(event.getHistoricalX(pointerIndex, h),
+                    event.getHistoricalY(pointerIndex, h), eventTime, false)) {
+                continue;
+            }
+
+            batchDegrees[count] = core.getDegrees();
+            batchOffsets[count] = core.getOffset();
+            batchEventTimes[count] = eventTime;
+            count++;
+        }
+
+        if (core.sampleDrag(event.getX(pointerIndex), event.getY(pointerIndex), event.getEventTime(),
+                true)) {
+            batchDegrees[count] = core.getDegrees();
+            batchOffsets[count] = core.getOffset();
+            batchEventTimes[count] = event.getEventTime();
+            count++;
+        }
+        if (0 == count) return;
+
+        publishState(batchEventTimes[count - 1]);
+        dragEventTime = batchEventTimes[count - 1];
+
+        dispatchDragBatch(count);
+
+        applyStickTranslation();
+    }
+
+    private void dispatchDragBatch(int count) {
+        if (null != recorder) {
+            for (int i = 0; i < count; i++) {
+                recorder.recordDrag(batchDegrees[i], batchOffsets[i], batchEventTimes[i]);
+            }
+        }
+
+        final long start = null != metrics ? System.nanoTime() : 0;
+        batchListener.onDragBatch(batchDegrees, batchOffsets, batchEventTimes, count);
+        if (null != metrics) metrics.onListenerReturned(start, dragEventTime);
+
+        dispatchDragToRegistrations();
+    }
+
+    private void dispatchDrag() {
+        if (null != recorder) {
+            recorder.recordDrag(core.getDegrees(), core.getOffset(), dragEventTime);
+        }
+
+        if (null != listener) {
+            final long start = null != metrics ? System.nanoTime() : 0;
+            if (null != vectorListener) {
+                vectorListener.onDragVector(core.getVectorX(), core.getVectorY());
+            } else {
+                listener.onDrag(core.getDegrees(), core.getOffset());
+            }
+            if (null != metrics) metrics.onListenerReturned(start, dragEventTime);
+        }
+
+        dispatchDragToRegistrations();
+    }
+
+    private void dispatchDragToRegistrations() {
+        final JoystickListenerRegistration[] registrations = this.registrations;
+        if (0 == registrations.length) return;
+
+        // the angle form is only computed if some listener needs it
+        boolean hasAngle = false;
+        float degrees = 0;
+        float offset = 0;
+        final float vectorX = core.getVectorX();
+        final float vectorY = core.getVectorY();
+        final long uptime = SystemClock.uptimeMillis();
+        for (JoystickListenerRegistration registration : registrations) {
+            if (!hasAngle && registration.needsAngle()) {
+                degrees = core.getDegrees();
+                offset = core.getOffset();
+                hasAngle = true;
+            }
+            registration.onDrag(degrees, offset, vectorX, vectorY, uptime);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (dragDispatchPending) {
+            dragDispatchPending = false;
+            dispatchDrag();
+        }
+        if (stickReturning) stepStickReturn(frameTimeNanos);
     }
 
     /**
-     * Where most of the magic happens. What, basic trigonometry isn't magic?!
+     * Delivers any coalesced drag update immediately, e.g. so that it is not reordered after
+     * {@link JoystickListener#onUp()}.
      */
-    private void onDrag(float dx, float dy) {
-        float x = downX + dx - centerX;
-        float y = downY + dy - centerY;
+    private void flushDragDispatch() {
+        if (!dragDispatchPending) return;
+
+        frameScheduler.cancel();
+        dragDispatchPending = false;
+        dispatchDrag();
+        if (stickReturning) frameScheduler.post();
+    }
 
-        switch (motionConstraint) {
-            case HORIZONTAL:
-                y = 0;
-                break;
-            case VERTICAL:
-                x = 0;
-                break;
+    private void applyStickTranslation() {
+        final float translationX = core.getOriginX() - core.getCenterX() + core.getStickX();
+        final float translationY = core.getOriginY() - core.getCenterY() + core.getStickY();
+        if (null != draggedChild) {
+            draggedChild.setTranslationX(translationX);
+            draggedChild.setTranslationY(translationY);
+        } else {
+            stickDrawableTranslationX = translationX;
+            stickDrawableTranslationY = translationY;
+            invalidate();
         }
+    }
+
+    /**
+     * Batch buffers only ever grow, so steady-state delivery does not allocate.
+     */
+    private void ensureBatchCapacity(int capacity) {
+        if (batchDegrees.length >= capacity) return;
 
-        float offset = (float) Math.sqrt(x * x + y * y);
-        if (x * x + y * y > radius * radius) {
-            x = radius * x / offset;
-            y = radius * y / offset;
-            offset = radius;
+        int newCapacity = batchDegrees.length;
+        while (newCapacity < capacity) newCapacity *= 2;
+
+        batchDegrees = new float[newCapacity];
+        batchOffsets = new float[newCapacity];
+        batchEventTimes = new long[newCapacity];
+    }
+
+    private void publishState(long eventTime) {
+        statePublisher.publish(core.isDetectingDrag(), core.getVectorX(), core.getVectorY(),
+                eventTime);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removeCallbacks(longPressCheck);
+        for (JoystickListenerRegistration registration : registrations) registration.cancel();
+        if (null != velocityTracker) {
+            velocityTracker.recycle();
+            velocityTracker = null;
         }
+        frameScheduler.cancel();
+        dragDispatchPending = false;
+        if (stickReturning) finishStickReturn(SystemClock.uptimeMillis());
+        super.onDetachedFromWindow();
+    }
 
-        final double radians = Math.atan2(-y, x);
-        final float degrees = (float) (180 * radians / Math.PI);
+    /*
+    STICK DRAWABLE
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
 
-        if (null != listener) listener.onDrag(degrees, 0 == radius ? 0 : offset / radius);
+        if (null == stickDrawable || hasStickChild()) return;
 
-        draggedChild.setTranslationX(x);
-        draggedChild.setTranslationY(y);
+        final int halfWidth = getStickDrawableWidth() / 2;
+        final int halfHeight = getStickDrawableHeight() / 2;
+        final int left = Math.round(core.getCenterX() + stickDrawableTranslationX) - halfWidth;
+        final int top = Math.round(core.getCenterY() + stickDrawableTranslationY) - halfHeight;
+        stickDrawable.setBounds(left, top, left + 2 * halfWidth, top + 2 * halfHeight);
+        stickDrawable.draw(canvas);
+    }
+
+    private int getStickDrawableWidth() {
+        return stickSize >= 0 ? stickSize : Math.max(0, stickDrawable.getIntrinsicWidth());
+    }
+
+    private int getStickDrawableHeight() {
+        return stickSize >= 0 ? stickSize : Math.max(0, stickDrawable.getIntrinsicHeight());
+    }
+
+    private int[] getStickDrawableState() {
+        return core.isDetectingDrag() ? PRESSED_STATE_SET : EMPTY_STATE_SET;
+    }
+
+    private void updateStickDrawableState() {
+        if (null != stickDrawable && stickDrawable.isStateful()
+                && stickDrawable.setState(getStickDrawableState())) {
+            invalidate();
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == stickDrawable || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void jumpDrawablesToCurrentState() {
+        super.jumpDrawablesToCurrentState();
+        if (null != stickDrawable) stickDrawable.jumpToCurrentState();
     }
 
     /*
     FORCE SQUARE
      */
+    @Override
+    public void requestLayout() {
+        super.requestLayout();
+        // also reached when the stick, or another descendant, requests a layout
+        if (null != layoutCache) layoutCache.invalidateMeasure(); // null during construction
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // a forced re-measure, e.g. by a scrolling parent, with nothing changed since the last one
+        if (layoutCache.hasMeasure(widthMeasureSpec, heightMeasureSpec)) {
+            setMeasuredDimension(layoutCache.getMeasuredWidthAndState(),
+                    layoutCache.getMeasuredHeightAndState());
+            return;
+        }
+
+        measureSquare(widthMeasureSpec, heightMeasureSpec);
+        layoutCache.storeMeasure(widthMeasureSpec, heightMeasureSpec, getMeasuredWidthAndState(),
+                getMeasuredHeightAndState());
+    }
+
+    private void measureSquare(int widthMeasureSpec, int heightMeasureSpec) {
         if (!forceSquare) {
             super.onMeasure(widthMeasureSpec, heightMeasureSpec);
             return;
@@ -467,7 +1362,8 @@ public class Joystick extends FrameLayout {
     @Override
     public void addView(@NonNull View child, int index, ViewGroup.LayoutParams params) {
         if (getChildCount() > 0) {
-            throw new IllegalStateException(LOG_TAG + " can host only one direct child");
+            throw new IllegalStateException(LOG_TAG + " can host only one direct child; for "
+                    + "multiple sticks, use a JoystickGroup");
         }
 
         super.addView(child, index, params);
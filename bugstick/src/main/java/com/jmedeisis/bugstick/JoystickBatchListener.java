@@ -0,0 +1,21 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Extension of {@link JoystickListener} that receives every touch sample, including those the
+ * system batches into a single move event between frames.
+ * If the listener set on a {@link Joystick} implements this interface,
+ * {@link #onDragBatch(float[], float[], long[], int)} is called in place of
+ * {@link JoystickListener#onDrag(float, float)}.
+ */
+public interface JoystickBatchListener extends JoystickListener {
+    /**
+     * Samples are ordered oldest first. The arrays are reused between calls and must not be
+     * retained; only the first {@code count} entries are valid.
+     *
+     * @param degrees    per sample, -180 -> 180.
+     * @param offsets    per sample, normalized, 0 -> 1.
+     * @param eventTimes per sample, in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     * @param count      number of valid samples, at least 1.
+     */
+    void onDragBatch(float[] degrees, float[] offsets, long[] eventTimes, int count);
+}
@@ -0,0 +1,669 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+
+/**
+ * The touch handling of {@link Joystick} without any Android framework dependencies: slop
+ * detection, pointer tracking, clamping and lock semantics, driven by plain
+ * (action, pointer id, x, y, event time) tuples. {@link Joystick} translates its motion events into
+ * calls on an instance of this class, and the same logic may be run directly in a simulator or a
+ * plain JVM unit test.
+ * <p>
+ * Actions take the values of the corresponding {@code MotionEvent} masked actions. Coordinates are
+ * in pixels, in the same space as the {@link #setCenter(float, float) center}. Not thread-safe.
+ */
+public final class JoystickCore {
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+    public static final int ACTION_POINTER_DOWN = 5;
+    public static final int ACTION_POINTER_UP = 6;
+
+    public static final int INVALID_POINTER_ID = -1;
+
+    private static final int DEFAULT_DIRECTION_COUNT = 8;
+    private static final int DEFAULT_MAGNITUDE_STEPS = 1;
+    private static final float DEFAULT_DIRECTION_HYSTERESIS = 0.1f;
+
+    /**
+     * Receives the transitions of the touch state machine. The stick position is queried from the
+     * core itself.
+     */
+    public interface Callback {
+        /**
+         * A touch went down on the joystick; the stick has been centered.
+         */
+        void onStartDetectingDrag(long eventTime);
+
+        /**
+         * The touch exceeded the slop, or went down with start on first touch enabled.
+         * Followed by {@link #onDrag(long)} for the initial stick position.
+         */
+        void onDragStart(long eventTime);
+
+        /**
+         * The stick position changed while dragging.
+         */
+        void onDrag(long eventTime);
+
+        /**
+         * The stick was released after a drag. It is left in place, so that it may be returned to
+         * the center gradually, and followed by {@link #onStopDetectingDrag(long, boolean)}.
+         *
+         * @param locked True if {@link #lock()} was called during the touch.
+         */
+        void onDragStop(long eventTime, boolean locked);
+
+        /**
+         * The touch ended. Unless locked, the callback is expected to {@link #centerStick() center}
+         * the stick, immediately or once any return has finished.
+         *
+         * @param locked True if {@link #lock()} was called during the touch.
+         */
+        void onStopDetectingDrag(long eventTime, boolean locked);
+    }
+
+    private final Callback callback;
+    private JoystickMetrics metrics;
+
+    private int touchSlop;
+
+    private float centerX, centerY;
+    private float radius;
+
+    private OriginMode originMode = OriginMode.FIXED;
+    private float originX, originY;
+
+    private boolean detectingDrag;
+    private boolean dragInProgress;
+
+    private float downX, downY;
+    private int activePointerId = INVALID_POINTER_ID;
+    private boolean slopExceeded;
+    private boolean axisActive;
+
+    private boolean locked;
+
+    private boolean startOnFirstTouch = true;
+    private int predictionTime = 0;
+
+    private MotionConstraint motionConstraint = MotionConstraint.NONE;
+
+    private float stickX, stickY;
+    private float outputX, outputY;
+    private final float[] stickPosition = new float[2];
+    private boolean stickChanged;
+
+    private ResponseCurve responseCurve;
+
+    private final DirectionQuantizer directionQuantizer = new DirectionQuantizer(
+            DEFAULT_DIRECTION_COUNT, DEFAULT_MAGNITUDE_STEPS, DEFAULT_DIRECTION_HYSTERESIS);
+
+    private final StickPredictor predictor = new StickPredictor();
+
+    public JoystickCore(Callback callback) {
+        if (null == callback) throw new IllegalArgumentException("Callback must not be null");
+        this.callback = callback;
+    }
+
+    /*
+    CONFIGURATION
+     */
+    public int getTouchSlop() {
+        return touchSlop;
+    }
+
+    /**
+     * @see Joystick#setTouchSlop(int)
+     */
+    public void setTouchSlop(int touchSlop) {
+        this.touchSlop = touchSlop;
+    }
+
+    public float getCenterX() {
+        return centerX;
+    }
+
+    public float getCenterY() {
+        return centerY;
+    }
+
+    /**
+     * @param centerX Resting position of the stick, in the coordinate space of the touch input.
+     * @param centerY Resting position of the stick, in the coordinate space of the touch input.
+     */
+    public void setCenter(float centerX, float centerY) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        if (!detectingDrag) {
+            originX = centerX;
+            originY = centerY;
+        }
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * @see Joystick#setRadius(float)
+     */
+    public void setRadius(float radius) {
+        this.radius = radius;
+    }
+
+    public MotionConstraint getMotionConstraint() {
+        return motionConstraint;
+    }
+
+    public void setMotionConstraint(MotionConstraint motionConstraint) {
+        this.motionConstraint = motionConstraint;
+    }
+
+    public OriginMode getOriginMode() {
+        return originMode;
+    }
+
+    /**
+     * @see Joystick#setOriginMode(OriginMode)
+     */
+    public void setOriginMode(OriginMode originMode) {
+        this.originMode = originMode;
+    }
+
+    public boolean isStartOnFirstTouch() {
+        return startOnFirstTouch;
+    }
+
+    /**
+     * @see Joystick#setStartOnFirstTouch(boolean)
+     */
+    public void setStartOnFirstTouch(boolean startOnFirstTouch) {
+        this.startOnFirstTouch = startOnFirstTouch;
+    }
+
+    public int getPredictionTime() {
+        return predictionTime;
+    }
+
+    /**
+     * @see Joystick#setPredictionTime(int)
+     */
+    public void setPredictionTime(int predictionTime) {
+        this.predictionTime = predictionTime;
+    }
+
+    public ResponseCurve getResponseCurve() {
+        return responseCurve;
+    }
+
+    /**
+     * @see Joystick#setResponseCurve(ResponseCurve)
+     */
+    public void setResponseCurve(ResponseCurve responseCurve) {
+        this.responseCurve = responseCurve;
+    }
+
+    public int getDirectionCount() {
+        return directionQuantizer.getDirectionCount();
+    }
+
+    public int getMagnitudeSteps() {
+        return directionQuantizer.getMagnitudeSteps();
+    }
+
+    public float getDirectionHysteresis() {
+        return directionQuantizer.getHysteresis();
+    }
+
+    /**
+     * Configures the snapping under {@link MotionConstraint#DIRECTIONAL}.
+     *
+     * @see Joystick#setDirectionCount(int)
+     * @see Joystick#setMagnitudeSteps(int)
+     * @see Joystick#setDirectionHysteresis(float)
+     */
+    public void setDirections(int directionCount, int magnitudeSteps, float hysteresis) {
+        directionQuantizer.configure(directionCount, magnitudeSteps, hysteresis);
+    }
+
+    public JoystickMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics Receives slop detection timings, or null (default) to disable them.
+     */
+    public void setMetrics(JoystickMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Locks the stick position when next the user releases it.
+     * Resets to unlocked state after subsequent touch.
+     */
+    public void lock() {
+        locked = true;
+    }
+
+    /*
+    STATE
+     */
+    public boolean isDetectingDrag() {
+        return detectingDrag;
+    }
+
+    public boolean isDragInProgress() {
+        return dragInProgress;
+    }
+
+    /**
+     * @return Id of the pointer being tracked, or {@link #INVALID_POINTER_ID} if none.
+     */
+    public int getActivePointerId() {
+        return activePointerId;
+    }
+
+    public float getDownX() {
+        return downX;
+    }
+
+    public float getDownY() {
+        return downY;
+    }
+
+    /**
+     * @return True if the active pointer has moved further than the touch slop from where it went
+     * down, in any direction and regardless of the motion constraint, e.g. to tell a tap from a
+     * drag.
+     */
+    public boolean hasExceededSlop() {
+        return slopExceeded;
+    }
+
+    /**
+     * @return Horizontal position the stick offset is measured from, in pixels. This is the center
+     * unless the {@link OriginMode} places the origin where the touch went down.
+     */
+    public float getOriginX() {
+        return originX;
+    }
+
+    /**
+     * @return Vertical position the stick offset is measured from, in pixels.
+     */
+    public float getOriginY() {
+        return originY;
+    }
+
+    /**
+     * @return Horizontal stick offset from the origin in pixels.
+     */
+    public float getStickX() {
+        return stickX;
+    }
+
+    /**
+     * @return Vertical stick offset from the origin in pixels, increasing downwards.
+     */
+    public float getStickY() {
+        return stickY;
+    }
+
+    /*
+    TOUCH EVENT HANDLING
+    Mirrors the split between ViewGroup#onInterceptTouchEvent and View#onTouchEvent, so that a
+    child view acting as the stick still receives the touches that do not move it.
+     */
+
+    /**
+     * Feeds a touch to a joystick that has no child view consuming touches, such that every touch
+     * reaches {@link #onTouchEvent}. Use this to drive the core directly.
+     *
+     * @return True if the touch was consumed.
+     */
+    public boolean processTouch(int action, int pointerId, float x, float y, long eventTime) {
+        if (ACTION_DOWN == action) onInterceptTouchEvent(action, pointerId, x, y, eventTime);
+        return onTouchEvent(action, pointerId, x, y, eventTime);
+    }
+
+    /**
+     * @return True if the joystick should take over the touch from a child view.
+     */
+    public boolean onInterceptTouchEvent(int action, int pointerId, float x, float y,
+                                         long eventTime) {
+        if (axisActive) return false;
+
+        switch (action) {
+            case ACTION_DOWN: {
+                if (detectingDrag) return false;
+
+                downX = x;
+                downY = y;
+                activePointerId = pointerId;
+
+                onStartDetectingDrag(eventTime);
+                break;
+            }
+            case ACTION_MOVE: {
+                if (INVALID_POINTER_ID == activePointerId || pointerId != activePointerId) break;
+                trackSlop(x, y);
+                if (detectingDrag && dragExceedsSlop(x, y)) {
+                    onDragStart(eventTime);
+                    return true;
+                }
+                break;
+            }
+            case ACTION_POINTER_UP: {
+                if (pointerId != activePointerId)
+                    break; // if active pointer, fall through and cancel!
+            }
+            case ACTION_CANCEL:
+            case ACTION_UP: {
+                onTouchEnded();
+
+                onStopDetectingDrag(eventTime);
+                break;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return True if the touch was consumed.
+     */
+    public boolean onTouchEvent(int action, int pointerId, float x, float y, long eventTime) {
+        if (axisActive) return false;
+
+        switch (action) {
+            case ACTION_DOWN: {
+                if (!detectingDrag) return false;
+                if (startOnFirstTouch) onDragStart(eventTime);
+                return true;
+            }
+            case ACTION_MOVE: {
+                if (INVALID_POINTER_ID == activePointerId || pointerId != activePointerId) break;
+
+                if (dragInProgress) {
+                    if (sampleDrag(x, y, eventTime, true)) callback.onDrag(eventTime);
+                    return true;
+                }
+
+                trackSlop(x, y);
+                if (detectingDrag && dragExceedsSlop(x, y)) {
+                    onDragStart(eventTime);
+                    return true;
+                }
+                break;
+            }
+            case ACTION_POINTER_UP: {
+                if (pointerId != activePointerId)
+                    break; // if active pointer, fall through and cancel!
+            }
+            case ACTION_CANCEL:
+            case ACTION_UP: {
+                onTouchEnded();
+
+                if (dragInProgress) {
+                    onDragStop(eventTime);
+                } else {
+                    onStopDetectingDrag(eventTime);
+                }
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves the stick to an absolute position reported by an analog axis or digital direction
+     * keys, e.g. of a game controller, through the same constraint, clamp and dispatch path as
+     * touch. A non-zero position presses and drags the stick; returning to zero releases it.
+     * Ignored while a touch holds the stick, and touches are ignored while the axis holds it.
+     *
+     * @param x -1 (left) -> 1 (right), as a fraction of the radius.
+     * @param y -1 (up) -> 1 (down), as a fraction of the radius.
+     */
+    public void onAxisEvent(float x, float y, long eventTime) {
+        final boolean centered = 0 == x && 0 == y;
+        if (!axisActive) {
+            if (detectingDrag || centered) return;
+
+            axisActive = true;
+            downX = centerX;
+            downY = centerY;
+            onStartDetectingDrag(eventTime);
+            beginDrag(eventTime);
+        }
+
+        updateStick(x * radius, y * radius);
+        if (stickChanged) callback.onDrag(eventTime);
+
+        if (centered) {
+            axisActive = false;
+            onDragStop(eventTime);
+        }
+    }
+
+    /**
+     * Feeds an intermediate sample of the active pointer, older than the next move, to the
+     * predictor only.
+     */
+    void addHistoricalSample(float x, float y, long eventTime) {
+        if (dragInProgress && predictionTime > 0) {
+            predictor.addSample(x - downX, y - downY, eventTime);
+        }
+    }
+
+    /**
+     * Moves the stick to follow a sample of the active pointer while dragging.
+     *
+     * @param predict True to extrapolate the stick position ahead of the sample.
+     * @return True if the stick position changed.
+     */
+    boolean sampleDrag(float x, float y, long eventTime, boolean predict) {
+        trackSlop(x, y);
+
+        float dx = x - downX;
+        float dy = y - downY;
+        if (predictionTime > 0) {
+            predictor.addSample(dx, dy, eventTime);
+            if (predict) {
+                dx = predictor.predictX(predictionTime);
+                dy = predictor.predictY(predictionTime);
+            }
+        }
+
+        updateStick(dx, dy);
+        return stickChanged;
+    }
+
+    private boolean dragExceedsSlop(float x, float y) {
+        if (null == metrics) {
+            return StickGeometry.exceedsSlop(motionConstraint, x - downX, y - downY, touchSlop);
+        }
+
+        final long start = System.nanoTime();
+        final boolean exceedsSlop = StickGeometry.exceedsSlop(motionConstraint, x - downX,
+                y - downY, touchSlop);
+        metrics.onSlopDetection(start);
+        return exceedsSlop;
+    }
+
+    private void trackSlop(float x, float y) {
+        if (!slopExceeded) {
+            slopExceeded = StickGeometry.exceedsSlop(MotionConstraint.NONE, x - downX, y - downY,
+                    touchSlop);
+        }
+    }
+
+    private void onTouchEnded() {
+        activePointerId = INVALID_POINTER_ID;
+    }
+
+    private void onStartDetectingDrag(long eventTime) {
+        detectingDrag = true;
+        slopExceeded = false;
+        centerStick();
+        if (OriginMode.FIXED != originMode) {
+            originX = downX;
+            originY = downY;
+        }
+        directionQuantizer.reset();
+        callback.onStartDetectingDrag(eventTime);
+    }
+
+    private void onStopDetectingDrag(long eventTime) {
+        detectingDrag = false;
+        callback.onStopDetectingDrag(eventTime, locked);
+
+        locked = false;
+    }
+
+    private void onDragStart(long eventTime) {
+        beginDrag(eventTime);
+
+        updateStick(0, 0);
+        if (stickChanged) callback.onDrag(eventTime);
+    }
+
+    private void beginDrag(long eventTime) {
+        dragInProgress = true;
+        predictor.reset();
+        predictor.addSample(0, 0, eventTime);
+        callback.onDragStart(eventTime);
+    }
+
+    private void onDragStop(long eventTime) {
+        dragInProgress = false;
+        callback.onDragStop(eventTime, locked);
+
+        onStopDetectingDrag(eventTime);
+    }
+
+    /*
+    STICK POSITION
+     */
+    private void updateStick(float dx, float dy) {
+        final float x = downX + dx;
+        final float y = downY + dy;
+        if (OriginMode.FOLLOWING == originMode && !axisActive) followTouch(x, y);
+
+        StickGeometry.constrain(motionConstraint, x - originX, y - originY, radius,
+                stickPosition);
+        stickChanged = true;
+        if (MotionConstraint.DIRECTIONAL == motionConstraint) {
+            stickChanged = directionQuantizer.update(stickPosition[0], stickPosition[1], radius,
+                    stickPosition);
+        }
+
+        stickX = stickPosition[0];
+        stickY = stickPosition[1];
+
+        updateOutput();
+    }
+
+    /**
+     * Drags the origin along behind a touch that is further than the radius from it, along the
+     * axes the motion constraint allows, so that the touch stays on the edge of the stick's range.
+     */
+    private void followTouch(float x, float y) {
+        float rx = x - originX;
+        float ry = y - originY;
+        if (MotionConstraint.HORIZONTAL == motionConstraint) {
+            ry = 0;
+        } else if (MotionConstraint.VERTICAL == motionConstraint) {
+            rx = 0;
+        }
+
+        final float distanceSquared = rx * rx + ry * ry;
+        if (distanceSquared <= radius * radius) return;
+
+        final float excess = 1 - radius / (float) Math.sqrt(distanceSquared);
+        originX += rx * excess;
+        originY += ry * excess;
+    }
+
+    /**
+     * Moves the stick to the given offset from the origin in pixels, bypassing touch input and
+     * the motion constraint, e.g. to animate its return.
+     */
+    public void setStickPosition(float stickX, float stickY) {
+        this.stickX = stickX;
+        this.stickY = stickY;
+        updateOutput();
+    }
+
+    /**
+     * Moves the origin the stick offset is measured from, in pixels, bypassing the
+     * {@link OriginMode}, e.g. to animate its return to the center.
+     */
+    public void setOrigin(float originX, float originY) {
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    /**
+     * Returns the stick, and the origin, to the center.
+     */
+    public void centerStick() {
+        originX = centerX;
+        originY = centerY;
+        stickX = stickY = 0;
+        outputX = outputY = 0;
+    }
+
+    private void updateOutput() {
+        if (0 == radius) {
+            outputX = outputY = 0;
+            return;
+        }
+
+        outputX = stickX / radius;
+        outputY = stickY / radius;
+
+        if (null != responseCurve) {
+            responseCurve.apply(outputX, outputY, stickPosition);
+            outputX = stickPosition[0];
+            outputY = stickPosition[1];
+        }
+    }
+
+    /*
+    STICK OUTPUTS
+    Derived lazily from the normalized, shaped output position so that each listener type pays
+    only for the math it consumes.
+     */
+
+    /**
+     * @return Angle of the stick in degrees, as reported by {@link JoystickListener#onDrag}.
+     */
+    public float getDegrees() {
+        return StickGeometry.degrees(outputX, outputY);
+    }
+
+    /**
+     * @return Offset of the stick, 0 -> 1, as reported by {@link JoystickListener#onDrag}.
+     */
+    public float getOffset() {
+        return StickGeometry.offset(outputX, outputY, 1);
+    }
+
+    /**
+     * @return Horizontal stick output, -1 -> 1, as reported by {@link JoystickVectorListener}.
+     */
+    public float getVectorX() {
+        return outputX;
+    }
+
+    /**
+     * @return Vertical stick output, -1 -> 1, increasing upwards, as reported by
+     * {@link JoystickVectorListener}.
+     */
+    public float getVectorY() {
+        return -outputY;
+    }
+}
@@ -0,0 +1,33 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Extension of {@link JoystickListener} that additionally receives taps, long presses and flicks
+ * of the stick. These are detected within the joystick's own touch handling, so no separate
+ * GestureDetector needs to process the same events again.
+ */
+public interface JoystickGestureListener extends JoystickListener {
+    /**
+     * The stick was released within the touch slop of where it was pressed, before a long press.
+     * Also called for each tap of a double tap.
+     */
+    void onTap();
+
+    /**
+     * A tap followed an earlier tap closely in time and position. Called after {@link #onTap()}.
+     */
+    void onDoubleTap();
+
+    /**
+     * The stick was held within the touch slop of where it was pressed for the long press timeout.
+     */
+    void onLongPress();
+
+    /**
+     * The stick was released while moving faster than the minimum fling velocity.
+     * Called before {@link JoystickListener#onUp()}.
+     *
+     * @param degrees  direction of the finger's motion, -180 -> 180.
+     * @param velocity speed of the finger in joystick radii per second.
+     */
+    void onFlick(float degrees, float velocity);
+}
@@ -0,0 +1,316 @@
+package com.jmedeisis.bugstick;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.FrameLayout;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+
+/**
+ * Hosts several sticks in a single view, each following its own pointer, e.g. for twin-stick
+ * controls.
+ * Extends FrameLayout; each direct child acts as a stick, resting where it is laid out.
+ * A pointer that goes down within reach of a free stick takes the nearest such stick until it
+ * goes up, and drags it up to the {@link #setRadius(float) radius} from its rest position.
+ * Sticks are addressed by child index, e.g. in
+ * {@link #setJoystickListener(int, JoystickListener)}.
+ * <p>
+ * Each stick is driven by the same touch handling as a {@link Joystick}. Unlike a
+ * {@link Joystick}, sticks return to rest as soon as they are released, and have no stick
+ * drawable, game controller input or gesture detection.
+ */
+public class JoystickGroup extends FrameLayout {
+
+    private static final Stick[] NO_STICKS = new Stick[0];
+
+    private final PointerRouter router = new PointerRouter();
+    private Stick[] sticks = NO_STICKS;
+
+    private int touchSlop;
+    private float radius = -1;
+    private MotionConstraint motionConstraint = MotionConstraint.NONE;
+
+    /**
+     * A stick, and the core that tracks its pointer.
+     */
+    private final class Stick implements JoystickCore.Callback {
+        final JoystickCore core = new JoystickCore(this);
+        View view;
+        JoystickListener listener;
+        JoystickVectorListener vectorListener;
+
+        Stick() {
+            core.setTouchSlop(touchSlop);
+            core.setMotionConstraint(motionConstraint);
+        }
+
+        void setListener(JoystickListener listener) {
+            this.listener = listener;
+            this.vectorListener = listener instanceof JoystickVectorListener ?
+                    (JoystickVectorListener) listener : null;
+        }
+
+        @Override
+        public void onStartDetectingDrag(long eventTime) {
+            if (null != view) view.setPressed(true);
+            if (null != listener) listener.onDown();
+        }
+
+        @Override
+        public void onDragStart(long eventTime) {
+        }
+
+        @Override
+        public void onDrag(long eventTime) {
+            applyTranslation();
+            if (null == listener) return;
+
+            if (null != vectorListener) {
+                vectorListener.onDragVector(core.getVectorX(), core.getVectorY());
+            } else {
+                listener.onDrag(core.getDegrees(), core.getOffset());
+            }
+        }
+
+        @Override
+        public void onDragStop(long eventTime, boolean locked) {
+        }
+
+        @Override
+        public void onStopDetectingDrag(long eventTime, boolean locked) {
+            core.centerStick();
+            applyTranslation();
+            if (null != view) view.setPressed(false);
+            if (null != listener) listener.onUp();
+        }
+
+        private void applyTranslation() {
+            if (null == view) return;
+
+            view.setTranslationX(core.getOriginX() - core.getCenterX() + core.getStickX());
+            view.setTranslationY(core.getOriginY() - core.getCenterY() + core.getStickY());
+        }
+    }
+
+    public JoystickGroup(Context context) {
+        super(context);
+        init(context, null);
+    }
+
+    public JoystickGroup(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs);
+    }
+
+    public JoystickGroup(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs);
+    }
+
+    @SuppressWarnings("unused")
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public JoystickGroup(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        init(context, attrs);
+    }
+
+    private void init(Context context, AttributeSet attrs) {
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        if (null != attrs) {
+            TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.JoystickGroup);
+            radius = a.getDimensionPixelOffset(R.styleable.JoystickGroup_radius, (int) radius);
+            motionConstraint = MotionConstraint.values()[a.getInt(
+                    R.styleable.JoystickGroup_motion_constraint, motionConstraint.ordinal())];
+            a.recycle();
+        }
+    }
+
+    /*
+    CONFIGURATION
+     */
+
+    /**
+     * @return The number of sticks, one per direct child.
+     */
+    @SuppressWarnings("unused")
+    public int getStickCount() {
+        return getChildCount();
+    }
+
+    /**
+     * @param stick Index of the child acting as the stick.
+     */
+    @SuppressWarnings("unused")
+    public void setJoystickListener(int stick, JoystickListener listener) {
+        getStick(stick).setListener(listener);
+    }
+
+    @SuppressWarnings("unused")
+    public MotionConstraint getMotionConstraint(int stick) {
+        return getStick(stick).core.getMotionConstraint();
+    }
+
+    /**
+     * @param stick Index of the child acting as the stick.
+     */
+    @SuppressWarnings("unused")
+    public void setMotionConstraint(int stick, MotionConstraint motionConstraint) {
+        getStick(stick).core.setMotionConstraint(motionConstraint);
+    }
+
+    @SuppressWarnings("unused")
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * @param radius Distance in pixels that each stick may be dragged from its rest position, or
+     *               -1 to use the larger dimension of each stick.
+     */
+    @SuppressWarnings("unused")
+    public void setRadius(float radius) {
+        this.radius = radius;
+        requestLayout();
+    }
+
+    private Stick getStick(int stick) {
+        if (stick < 0) throw new IndexOutOfBoundsException("No stick " + stick);
+        ensureSticks(stick + 1);
+        return sticks[stick];
+    }
+
+    /**
+     * Sticks are only ever added, so that those configured before their child is added are kept.
+     */
+    private void ensureSticks(int count) {
+        if (sticks.length >= count) return;
+
+        final Stick[] newSticks = new Stick[count];
+        System.arraycopy(sticks, 0, newSticks, 0, sticks.length);
+        for (int i = sticks.length; i < count; i++) newSticks[i] = new Stick();
+        sticks = newSticks;
+    }
+
+    /*
+    LAYOUT
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+
+        final int count = getChildCount();
+        if (count != router.getStickCount()) {
+            cancelSticks(SystemClock.uptimeMillis());
+            router.setStickCount(count);
+        }
+        ensureSticks(count);
+
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final Stick stick = sticks[i];
+            stick.view = child;
+
+            // layout positions exclude the translation, so this is the rest position
+            final float centerX = (child.getLeft() + child.getRight()) / 2f;
+            final float centerY = (child.getTop() + child.getBottom()) / 2f;
+            final int size = Math.max(child.getWidth(), child.getHeight());
+            final float stickRadius = radius >= 0 ? radius : size;
+            stick.core.setCenter(centerX, centerY);
+            stick.core.setRadius(stickRadius);
+            router.setStick(i, centerX, centerY, stickRadius + size / 2f);
+        }
+        for (int i = count; i < sticks.length; i++) sticks[i].view = null; // child removed
+    }
+
+    /*
+    TOUCH EVENT HANDLING
+     */
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        // the sticks are moved by their pointers, rather than handling touches themselves
+        return isEnabled();
+    }
+
+    @Override
+    public boolean onTouchEvent(@NonNull MotionEvent event) {
+        if (!isEnabled()) return false;
+
+        final long eventTime = event.getEventTime();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                final int pointerIndex = event.getActionIndex();
+                final int pointerId = event.getPointerId(pointerIndex);
+                final float x = event.getX(pointerIndex);
+                final float y = event.getY(pointerIndex);
+                final int stick = router.down(pointerId, x, y);
+                if (PointerRouter.NO_STICK != stick) {
+                    sticks[stick].core.processTouch(JoystickCore.ACTION_DOWN, pointerId, x, y,
+                            eventTime);
+                }
+                // even if no stick was taken, so that later pointers of the gesture arrive
+                return true;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                final int pointerCount = event.getPointerCount();
+                for (int i = 0; i < pointerCount; i++) {
+                    final int pointerId = event.getPointerId(i);
+                    final int stick = router.route(pointerId);
+                    if (PointerRouter.NO_STICK == stick) continue;
+
+                    sticks[stick].core.processTouch(JoystickCore.ACTION_MOVE, pointerId,
+                            event.getX(i), event.getY(i), eventTime);
+                }
+                return true;
+            }
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP: {
+                final int pointerIndex = event.getActionIndex();
+                final int pointerId = event.getPointerId(pointerIndex);
+                final int stick = router.up(pointerId);
+                if (PointerRouter.NO_STICK != stick) {
+                    sticks[stick].core.processTouch(JoystickCore.ACTION_UP, pointerId,
+                            event.getX(pointerIndex), event.getY(pointerIndex), eventTime);
+                }
+                return true;
+            }
+            case MotionEvent.ACTION_CANCEL: {
+                cancelSticks(eventTime);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Releases every held stick, as if its pointer went up.
+     */
+    private void cancelSticks(long eventTime) {
+        final int count = router.getStickCount();
+        for (int i = 0; i < count; i++) {
+            final int pointerId = router.getPointer(i);
+            if (JoystickCore.INVALID_POINTER_ID == pointerId) continue;
+
+            final JoystickCore core = sticks[i].core;
+            core.processTouch(JoystickCore.ACTION_CANCEL, pointerId, core.getCenterX(),
+                    core.getCenterY(), eventTime);
+        }
+        router.clear();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelSticks(SystemClock.uptimeMillis());
+        super.onDetachedFromWindow();
+    }
+}
@@ -12,5 +12,9 @@ public interface JoystickListener {
      */
     void onDrag(float degrees, float offset);
 
+    /**
+     * Called once the released stick has returned to the center, or immediately on release if
+     * the stick does not return. Not called if the stick was {@link Joystick#lock() locked}.
+     */
     void onUp();
 }
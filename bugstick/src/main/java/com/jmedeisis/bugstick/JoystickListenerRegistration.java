@@ -0,0 +1,203 @@
+package com.jmedeisis.bugstick;
+
+import android.os.SystemClock;
+import android.view.View;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers the callbacks of a {@link Joystick} to one additional listener, on the listener's own
+ * executor and at most at its own drag update rate.
+ * <p>
+ * Drag updates are conflated rather than queued: the joystick only ever overwrites the latest
+ * pending position, and at most one delivery task is scheduled at a time, so a slow listener
+ * receives fewer, more recent updates instead of stalling touch handling. Every
+ * {@link JoystickListener#onDown()} and {@link JoystickListener#onUp()} is delivered, in order.
+ * Neither recording nor delivery allocates or locks.
+ */
+final class JoystickListenerRegistration implements Runnable {
+
+    final JoystickListener listener;
+    private final JoystickVectorListener vectorListener;
+    private final Executor executor;
+    private final long minDragInterval;
+    private final View host;
+
+    /*
+    Written only by the UI thread.
+     */
+    private volatile int downCount;
+    private volatile int upCount;
+    private volatile long dragValue; // two floats, packed so that they are read consistently
+    private volatile int dragGesture; // downCount when the drag was recorded
+    private volatile int dragVersion; // odd while a drag is being recorded
+    private long lastDragDispatchTime;
+    private boolean trailingDispatchPosted;
+    private final Runnable trailingDispatch = new Runnable() {
+        @Override
+        public void run() {
+            trailingDispatchPosted = false;
+            lastDragDispatchTime = SystemClock.uptimeMillis();
+            dispatch();
+        }
+    };
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /*
+    Accessed only by the single delivery in progress.
+     */
+    private int deliveredDowns;
+    private int deliveredUps;
+    private int deliveredDrags;
+
+    /**
+     * @param executor            Runs the listener callbacks, or null to call them directly on the
+     *                            UI thread.
+     * @param maxUpdatesPerSecond Maximum rate of drag updates, or 0 for no limit.
+     * @param host                Schedules the trailing update of a rate-limited burst of drags.
+     */
+    JoystickListenerRegistration(JoystickListener listener, Executor executor,
+                                 int maxUpdatesPerSecond, View host) {
+        if (null == listener) throw new IllegalArgumentException("Listener must not be null");
+        if (maxUpdatesPerSecond < 0) {
+            throw new IllegalArgumentException("Max updates per second must not be negative");
+        }
+
+        this.listener = listener;
+        this.vectorListener = listener instanceof JoystickVectorListener ?
+                (JoystickVectorListener) listener : null;
+        this.executor = executor;
+        this.minDragInterval = 0 == maxUpdatesPerSecond ? 0 : 1000 / maxUpdatesPerSecond;
+        this.host = host;
+    }
+
+    /*
+    UI THREAD
+     */
+
+    /**
+     * @return Whether {@link #onDrag} uses its degrees and offset, rather than only the vector.
+     */
+    boolean needsAngle() {
+        return null == vectorListener;
+    }
+
+    void onDown() {
+        downCount = downCount + 1;
+        dispatch();
+    }
+
+    /**
+     * @param degrees Ignored unless {@link #needsAngle()}, as is the offset.
+     * @param uptime  Current {@link android.os.SystemClock#uptimeMillis()}.
+     */
+    void onDrag(float degrees, float offset, float vectorX, float vectorY, long uptime) {
+        // seqlock, so that the position is never read with the gesture of another drag
+        dragVersion = dragVersion + 1;
+        dragValue = null != vectorListener ? pack(vectorX, vectorY) : pack(degrees, offset);
+        dragGesture = downCount;
+        dragVersion = dragVersion + 1;
+
+        if (trailingDispatchPosted) return;
+
+        final long elapsed = uptime - lastDragDispatchTime;
+        if (elapsed >= minDragInterval) {
+            lastDragDispatchTime = uptime;
+            dispatch();
+        } else {
+            trailingDispatchPosted = true;
+            host.postDelayed(trailingDispatch, minDragInterval - elapsed);
+        }
+    }
+
+    void onUp() {
+        if (upCount == downCount) return; // registered mid-gesture; its down was never delivered
+        upCount = upCount + 1;
+        dispatch();
+    }
+
+    void cancel() {
+        host.removeCallbacks(trailingDispatch);
+        trailingDispatchPosted = false;
+    }
+
+    private void dispatch() {
+        if (null == executor) {
+            deliver();
+        } else if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    /*
+    EXECUTOR
+     */
+    @Override
+    public void run() {
+        do {
+            deliver();
+            scheduled.set(false);
+            // recheck, as an update recorded during delivery could not schedule another task
+        } while (hasPending() && scheduled.compareAndSet(false, true));
+    }
+
+    private boolean hasPending() {
+        return downCount != deliveredDowns || upCount != deliveredUps
+                || dragVersion != deliveredDrags;
+    }
+
+    /**
+     * Replays the recorded gestures in order. Only the latest drag position is delivered, and only
+     * if it belongs to the latest gesture.
+     */
+    private void deliver() {
+        int drags;
+        long drag;
+        int gesture;
+        do {
+            drags = dragVersion;
+            drag = dragValue;
+            gesture = dragGesture;
+        } while (0 != (drags & 1) || drags != dragVersion);
+        // read after the drag, so that its gesture has been counted
+        final int downs = downCount;
+        final int ups = upCount;
+
+        while (true) {
+            if (deliveredDowns == deliveredUps) {
+                if (deliveredDowns == downs) break;
+
+                deliveredDowns++;
+                listener.onDown();
+            } else {
+                if (deliveredDowns == downs && gesture == downs && drags != deliveredDrags) {
+                    deliveredDrags = drags;
+                    deliverDrag(drag);
+                }
+                if (deliveredUps == ups) break;
+
+                deliveredUps++;
+                listener.onUp();
+            }
+        }
+
+        deliveredDrags = drags;
+    }
+
+    private void deliverDrag(long drag) {
+        final float first = Float.intBitsToFloat((int) (drag >>> 32));
+        final float second = Float.intBitsToFloat((int) drag);
+        if (null != vectorListener) {
+            vectorListener.onDragVector(first, second);
+        } else {
+            listener.onDrag(first, second);
+        }
+    }
+
+    private static long pack(float first, float second) {
+        return (long) Float.floatToRawIntBits(first) << 32
+                | Float.floatToRawIntBits(second) & 0xffffffffL;
+    }
+}
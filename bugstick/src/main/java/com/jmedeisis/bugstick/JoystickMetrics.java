@@ -0,0 +1,128 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Opt-in instrumentation of a {@link Joystick}'s touch handling, for monitoring its behavior in
+ * the field. Attach with {@link Joystick#setMetrics(JoystickMetrics)}; when none is attached the
+ * joystick skips all measurement.
+ * Recording allocates nothing. All values may be read from any thread while recording continues.
+ */
+public final class JoystickMetrics {
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
+    private final LatencyHistogram listenerTime = new LatencyHistogram();
+    private final LatencyHistogram slopDetectionTime = new LatencyHistogram();
+
+    private volatile long eventCount;
+    private volatile long interceptedEventCount;
+    private volatile long directEventCount;
+
+    private long rateWindowStart;
+    private long rateWindowEventCount;
+    private volatile float eventsPerSecond;
+
+    /**
+     * @return Time from {@link android.view.MotionEvent#getEventTime()} until the resulting
+     * {@link JoystickListener} callback returns.
+     */
+    public LatencyHistogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * @return Time spent in {@link JoystickListener} callbacks.
+     */
+    public LatencyHistogram getListenerTime() {
+        return listenerTime;
+    }
+
+    /**
+     * @return Time spent deciding whether a touch has moved far enough to start a drag.
+     */
+    public LatencyHistogram getSlopDetectionTime() {
+        return slopDetectionTime;
+    }
+
+    /**
+     * @return Touch events dispatched to the joystick.
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return Touch events seen while intercepting on behalf of the stick child.
+     */
+    public long getInterceptedEventCount() {
+        return interceptedEventCount;
+    }
+
+    /**
+     * @return Touch events handled by the joystick directly.
+     */
+    public long getDirectEventCount() {
+        return directEventCount;
+    }
+
+    /**
+     * @return Touch event rate over the most recent completed window of about one second.
+     */
+    public float getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    /**
+     * Not atomic with respect to concurrent recording.
+     */
+    public void reset() {
+        inputLatency.reset();
+        listenerTime.reset();
+        slopDetectionTime.reset();
+        eventCount = 0;
+        interceptedEventCount = 0;
+        directEventCount = 0;
+        eventsPerSecond = 0;
+    }
+
+    /*
+    RECORDING
+    Called from the UI thread only, so plain read-modify-write of the volatile counters is safe.
+     */
+    void onEvent(long nowNanos) {
+        eventCount++;
+
+        if (0 == rateWindowEventCount++) {
+            rateWindowStart = nowNanos;
+            return;
+        }
+        final long elapsed = nowNanos - rateWindowStart;
+        if (elapsed >= NANOS_PER_SECOND) {
+            eventsPerSecond = (float) (rateWindowEventCount - 1) * NANOS_PER_SECOND / elapsed;
+            rateWindowStart = nowNanos;
+            rateWindowEventCount = 1;
+        }
+    }
+
+    void onInterceptedEvent() {
+        interceptedEventCount++;
+    }
+
+    void onDirectEvent() {
+        directEventCount++;
+    }
+
+    void onSlopDetection(long startNanos) {
+        slopDetectionTime.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param eventTime In the {@link android.os.SystemClock#uptimeMillis()} time base, which
+     *                  shares its monotonic clock with {@link System#nanoTime()} on Android.
+     */
+    void onListenerReturned(long startNanos, long eventTime) {
+        final long now = System.nanoTime();
+        listenerTime.record(now - startNanos);
+        inputLatency.record(now - eventTime * NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,105 @@
+package com.jmedeisis.bugstick;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Records the touch input a {@link Joystick} receives, and the listener callbacks it produces,
+ * into a preallocated ring buffer of fixed-size binary records. Once full, the oldest records are
+ * overwritten, so recording may be left enabled in the field without growing or allocating.
+ * Attach with {@link Joystick#setRecorder(JoystickRecorder)}, save with
+ * {@link #writeTo(OutputStream)}, and load and replay with {@link JoystickTrace}.
+ * <p>
+ * Not thread safe; use from the UI thread only.
+ */
+public final class JoystickRecorder {
+    static final int MAGIC = 0x42475354; // "BGST"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 10;
+
+    /*
+    RECORD LAYOUT, big-endian:
+    type (1) | action (1) | pointer id (1) | reserved (1) | event time (8) | value 0 (4) | value 1 (4)
+     */
+    static final int RECORD_SIZE = 20;
+    static final int OFFSET_TYPE = 0;
+    static final int OFFSET_ACTION = 1;
+    static final int OFFSET_POINTER_ID = 2;
+    static final int OFFSET_EVENT_TIME = 4;
+    static final int OFFSET_VALUE_0 = 12;
+    static final int OFFSET_VALUE_1 = 16;
+
+    private final int capacity;
+    private final ByteBuffer records;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private int next;
+    private int size;
+
+    /**
+     * @param capacity Maximum number of records retained.
+     */
+    public JoystickRecorder(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+
+        this.capacity = capacity;
+        this.records = ByteBuffer.allocate(capacity * RECORD_SIZE);
+    }
+
+    /**
+     * @return Number of records currently retained.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Writes the retained records, oldest first, preceded by a small header.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        header.clear();
+        header.putInt(MAGIC).putShort(VERSION).putInt(size);
+        out.write(header.array(), 0, HEADER_SIZE);
+
+        final byte[] bytes = records.array();
+        final int oldest = size < capacity ? 0 : next;
+        final int firstRun = Math.min(size, capacity - oldest);
+        out.write(bytes, oldest * RECORD_SIZE, firstRun * RECORD_SIZE);
+        out.write(bytes, 0, (size - firstRun) * RECORD_SIZE);
+    }
+
+    void recordTouch(int action, int pointerId, float x, float y, long eventTime) {
+        write(JoystickTrace.TYPE_TOUCH, action, pointerId, eventTime, x, y);
+    }
+
+    void recordDown(long eventTime) {
+        write(JoystickTrace.TYPE_DOWN, 0, 0, eventTime, 0, 0);
+    }
+
+    void recordDrag(float degrees, float offset, long eventTime) {
+        write(JoystickTrace.TYPE_DRAG, 0, 0, eventTime, degrees, offset);
+    }
+
+    void recordUp(long eventTime) {
+        write(JoystickTrace.TYPE_UP, 0, 0, eventTime, 0, 0);
+    }
+
+    private void write(byte type, int action, int pointerId, long eventTime,
+                       float value0, float value1) {
+        final int position = next * RECORD_SIZE;
+        records.put(position + OFFSET_TYPE, type);
+        records.put(position + OFFSET_ACTION, (byte) action);
+        records.put(position + OFFSET_POINTER_ID, (byte) pointerId);
+        records.putLong(position + OFFSET_EVENT_TIME, eventTime);
+        records.putFloat(position + OFFSET_VALUE_0, value0);
+        records.putFloat(position + OFFSET_VALUE_1, value1);
+
+        next = next + 1 == capacity ? 0 : next + 1;
+        if (size < capacity) size++;
+    }
+}
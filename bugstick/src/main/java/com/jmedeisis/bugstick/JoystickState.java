@@ -0,0 +1,63 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * A consistent snapshot of a {@link Joystick}'s output that may be read from any thread.
+ * Fill one via {@link Joystick#getState(JoystickState)}; instances are meant to be reused.
+ */
+public final class JoystickState {
+    long version;
+    boolean pressed;
+    float x, y;
+    long eventTime;
+
+    /**
+     * @return Increases every time the joystick publishes a new state, so pollers can cheaply
+     * detect change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return True while the user is touching the stick.
+     */
+    public boolean isPressed() {
+        return pressed;
+    }
+
+    /**
+     * @return -1 (left) -> 1 (right).
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * @return -1 (down) -> 1 (up).
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * @return -180 -> 180.
+     */
+    public float getDegrees() {
+        return StickGeometry.degrees(x, -y);
+    }
+
+    /**
+     * @return Normalized, 0 -> 1.
+     */
+    public float getOffset() {
+        return StickGeometry.offset(x, y, 1);
+    }
+
+    /**
+     * @return Time of the input event that produced this state, in the
+     * {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    public long getEventTime() {
+        return eventTime;
+    }
+}
@@ -0,0 +1,47 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Single-writer sequence lock over the joystick output.
+ * The UI thread publishes without blocking; readers on any thread retry until they observe a
+ * sequence number that is even and unchanged across their read, and so never see a torn state.
+ */
+final class JoystickStatePublisher {
+    private volatile long sequence;
+
+    private volatile boolean pressed;
+    private volatile float x, y;
+    private volatile long eventTime;
+
+    /**
+     * Must only be called from a single thread.
+     */
+    void publish(boolean pressed, float x, float y, long eventTime) {
+        final long start = sequence;
+        sequence = start + 1;
+
+        this.pressed = pressed;
+        this.x = x;
+        this.y = y;
+        this.eventTime = eventTime;
+
+        sequence = start + 2;
+    }
+
+    void read(JoystickState out) {
+        long start;
+        do {
+            start = sequence;
+            if ((start & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+
+            out.pressed = pressed;
+            out.x = x;
+            out.y = y;
+            out.eventTime = eventTime;
+        } while ((start & 1) != 0 || start != sequence);
+
+        out.version = start >> 1;
+    }
+}
@@ -0,0 +1,77 @@
+package com.jmedeisis.bugstick;
+
+import android.support.annotation.NonNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes a stream written by a {@link JoystickStreamEncoder} with the same bit widths, replaying
+ * its events to a {@link JoystickListener}. Decoding allocates nothing.
+ */
+public final class JoystickStreamDecoder {
+    private final StreamQuantizer quantizer;
+    private int lastTick;
+
+    public JoystickStreamDecoder(int angleBits, int offsetBits) {
+        quantizer = new StreamQuantizer(angleBits, offsetBits);
+    }
+
+    /**
+     * Reads a single tick and delivers its events, in order, to the listener.
+     *
+     * @return The tick number.
+     * @throws BufferUnderflowException If the buffer ends within the tick.
+     */
+    public int readTick(@NonNull ByteBuffer in, @NonNull JoystickListener listener) {
+        final int tick = lastTick + unzigzag(readVarint(in));
+        final int count = readVarint(in);
+
+        for (int i = 0; i < count; i++) {
+            final int header = readVarint(in);
+            switch (header & ((1 << JoystickStreamEncoder.TYPE_BITS) - 1)) {
+                case JoystickStreamEncoder.TYPE_DOWN:
+                    listener.onDown();
+                    break;
+                case JoystickStreamEncoder.TYPE_UP:
+                    listener.onUp();
+                    break;
+                case JoystickStreamEncoder.TYPE_DRAG:
+                    final int angle = quantizer.applyAngleDelta(
+                            unzigzag(header >>> JoystickStreamEncoder.TYPE_BITS));
+                    final int offset = quantizer.applyOffsetDelta(unzigzag(readVarint(in)));
+                    quantizer.setPrevious(angle, offset);
+                    listener.onDrag(quantizer.dequantizeAngle(angle),
+                            quantizer.dequantizeOffset(offset));
+                    break;
+                default:
+                    throw new IllegalStateException("Corrupt joystick stream");
+            }
+        }
+
+        lastTick = tick;
+        return tick;
+    }
+
+    /**
+     * Discards delta state, to follow a {@link JoystickStreamEncoder#reset()}.
+     */
+    public void reset() {
+        lastTick = 0;
+        quantizer.setPrevious(0, 0);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("Corrupt joystick stream");
+    }
+}
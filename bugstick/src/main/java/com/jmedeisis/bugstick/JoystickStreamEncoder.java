@@ -0,0 +1,145 @@
+package com.jmedeisis.bugstick;
+
+import android.support.annotation.NonNull;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes joystick events into a compact byte stream, e.g. for sending to a game server, to be
+ * read back by a {@link JoystickStreamDecoder} configured with the same bit widths.
+ * <p>
+ * Set as (or forward to it from) a joystick's listener. Events are quantized to the configured
+ * bit widths, delta-encoded against the previous event and written as varints into a preallocated
+ * buffer. Events are grouped into ticks by {@link #writeTick(int, ByteBuffer)}.
+ * <p>
+ * Each tick is written as varint(zigzag(tick delta)), varint(event count), then per event either
+ * varint(type) for {@link #onDown()} and {@link #onUp()}, or
+ * varint(zigzag(angle delta) &lt;&lt; 2 | type), varint(zigzag(offset delta)) for
+ * {@link #onDrag(float, float)}.
+ * <p>
+ * Not thread safe; listener callbacks and {@link #writeTick(int, ByteBuffer)} must happen on the
+ * same thread.
+ */
+public final class JoystickStreamEncoder implements JoystickListener {
+    static final int TYPE_DRAG = 0;
+    static final int TYPE_DOWN = 1;
+    static final int TYPE_UP = 2;
+    static final int TYPE_BITS = 2;
+
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int MAX_EVENT_BYTES = 2 * MAX_VARINT_BYTES;
+
+    private final StreamQuantizer quantizer;
+    private final ByteBuffer pending;
+    private int pendingCount;
+    private int lastTick;
+    private long droppedEventCount;
+
+    /**
+     * @param angleBits       1 -> 16. 8 bits gives a resolution of about 1.4 degrees.
+     * @param offsetBits      1 -> 16.
+     * @param maxBytesPerTick Capacity for events accumulated between ticks; further events are
+     *                        dropped.
+     */
+    public JoystickStreamEncoder(int angleBits, int offsetBits, int maxBytesPerTick) {
+        quantizer = new StreamQuantizer(angleBits, offsetBits);
+        pending = ByteBuffer.allocate(maxBytesPerTick);
+    }
+
+    @Override
+    public void onDown() {
+        if (!hasRoom()) return;
+
+        writeVarint(pending, TYPE_DOWN);
+        pendingCount++;
+    }
+
+    @Override
+    public void onDrag(float degrees, float offset) {
+        if (!hasRoom()) return;
+
+        final int angle = quantizer.quantizeAngle(degrees);
+        final int offsetQuantized = quantizer.quantizeOffset(offset);
+        writeVarint(pending, zigzag(quantizer.angleDelta(angle)) << TYPE_BITS | TYPE_DRAG);
+        writeVarint(pending, zigzag(quantizer.offsetDelta(offsetQuantized)));
+        quantizer.setPrevious(angle, offsetQuantized);
+        pendingCount++;
+    }
+
+    @Override
+    public void onUp() {
+        if (!hasRoom()) return;
+
+        writeVarint(pending, TYPE_UP);
+        pendingCount++;
+    }
+
+    /**
+     * Writes the events received since the previous tick, if any, as the given tick.
+     *
+     * @throws BufferOverflowException If out has insufficient room, in which case the events are
+     *                                 retained.
+     */
+    public void writeTick(int tick, @NonNull ByteBuffer out) {
+        final int start = out.position();
+        try {
+            writeVarint(out, zigzag(tick - lastTick));
+            writeVarint(out, pendingCount);
+        } catch (BufferOverflowException e) {
+            out.position(start);
+            throw e;
+        }
+
+        pending.flip();
+        if (out.remaining() < pending.remaining()) {
+            // back to appending after the retained events
+            pending.position(pending.limit());
+            pending.limit(pending.capacity());
+            out.position(start);
+            throw new BufferOverflowException();
+        }
+        out.put(pending);
+
+        pending.clear();
+        pendingCount = 0;
+        lastTick = tick;
+    }
+
+    /**
+     * @return Events dropped because too many arrived within a single tick.
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount;
+    }
+
+    /**
+     * Discards pending events and delta state, to restart the stream alongside a fresh
+     * {@link JoystickStreamDecoder}.
+     */
+    public void reset() {
+        pending.clear();
+        pendingCount = 0;
+        lastTick = 0;
+        quantizer.setPrevious(0, 0);
+    }
+
+    private boolean hasRoom() {
+        if (pending.remaining() >= MAX_EVENT_BYTES) return true;
+
+        droppedEventCount++;
+        return false;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
@@ -0,0 +1,156 @@
+package com.jmedeisis.bugstick;
+
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A sequence of records written by {@link JoystickRecorder}, with the ability to replay its touch
+ * input into a {@link Joystick}.
+ * Comparing the callbacks recorded in a trace against those produced on replay makes field
+ * captures usable as regression tests.
+ */
+public final class JoystickTrace {
+    /**
+     * Touch input, with {@link #getX(int)} and {@link #getY(int)} in the joystick's coordinates.
+     */
+    public static final byte TYPE_TOUCH = 0;
+    /**
+     * {@link JoystickListener#onDown()} callback.
+     */
+    public static final byte TYPE_DOWN = 1;
+    /**
+     * {@link JoystickListener#onDrag(float, float)} output, with {@link #getDegrees(int)} and
+     * {@link #getOffset(int)}.
+     */
+    public static final byte TYPE_DRAG = 2;
+    /**
+     * {@link JoystickListener#onUp()} callback.
+     */
+    public static final byte TYPE_UP = 3;
+
+    private final ByteBuffer records;
+    private final int size;
+
+    private JoystickTrace(ByteBuffer records, int size) {
+        this.records = records;
+        this.size = size;
+    }
+
+    public static JoystickTrace read(@NonNull InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (JoystickRecorder.MAGIC != data.readInt()) {
+            throw new IOException("Not a joystick trace");
+        }
+        final short version = data.readShort();
+        if (JoystickRecorder.VERSION != version) {
+            throw new IOException("Unsupported joystick trace version " + version);
+        }
+        final int size = data.readInt();
+
+        final byte[] bytes = new byte[size * JoystickRecorder.RECORD_SIZE];
+        data.readFully(bytes);
+        return new JoystickTrace(ByteBuffer.wrap(bytes), size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte getType(int index) {
+        return records.get(position(index) + JoystickRecorder.OFFSET_TYPE);
+    }
+
+    /**
+     * @return For {@link #TYPE_TOUCH} records, the masked {@link MotionEvent} action.
+     */
+    public int getAction(int index) {
+        return records.get(position(index) + JoystickRecorder.OFFSET_ACTION);
+    }
+
+    /**
+     * @return For {@link #TYPE_TOUCH} records, the id of the pointer the record describes.
+     */
+    public int getPointerId(int index) {
+        return records.get(position(index) + JoystickRecorder.OFFSET_POINTER_ID);
+    }
+
+    /**
+     * @return In the {@link android.os.SystemClock#uptimeMillis()} time base of the recording.
+     */
+    public long getEventTime(int index) {
+        return records.getLong(position(index) + JoystickRecorder.OFFSET_EVENT_TIME);
+    }
+
+    public float getX(int index) {
+        return records.getFloat(position(index) + JoystickRecorder.OFFSET_VALUE_0);
+    }
+
+    public float getY(int index) {
+        return records.getFloat(position(index) + JoystickRecorder.OFFSET_VALUE_1);
+    }
+
+    public float getDegrees(int index) {
+        return records.getFloat(position(index) + JoystickRecorder.OFFSET_VALUE_0);
+    }
+
+    public float getOffset(int index) {
+        return records.getFloat(position(index) + JoystickRecorder.OFFSET_VALUE_1);
+    }
+
+    /**
+     * Feeds the recorded touch input through the joystick's touch handling, as fast as possible
+     * and with the original event times. Each recorded sample is dispatched as its own event.
+     * Pointers other than the one that started each gesture are skipped, as the joystick ignores
+     * them.
+     */
+    public void replay(@NonNull Joystick joystick) {
+        long downTime = 0;
+        int downPointerId = -1;
+
+        for (int i = 0; i < size; i++) {
+            if (TYPE_TOUCH != getType(i)) continue;
+
+            int action = getAction(i);
+            final int pointerId = getPointerId(i);
+            switch (action) {
+                case MotionEvent.ACTION_DOWN:
+                    downTime = getEventTime(i);
+                    downPointerId = pointerId;
+                    break;
+                case MotionEvent.ACTION_POINTER_DOWN:
+                    continue;
+                case MotionEvent.ACTION_POINTER_UP:
+                    if (pointerId != downPointerId) continue;
+                    action = MotionEvent.ACTION_UP;
+                    break;
+            }
+
+            final MotionEvent event = MotionEvent.obtain(downTime, getEventTime(i), action,
+                    getX(i), getY(i), 0);
+            joystick.dispatchTouchEvent(event);
+            event.recycle();
+        }
+    }
+
+    /**
+     * Feeds the recorded touch input straight into the given core, without a view or the
+     * framework, e.g. to reproduce a field trace in a JVM unit test or simulator.
+     */
+    public void replay(@NonNull JoystickCore core) {
+        for (int i = 0; i < size; i++) {
+            if (TYPE_TOUCH != getType(i)) continue;
+
+            core.processTouch(getAction(i), getPointerId(i), getX(i), getY(i), getEventTime(i));
+        }
+    }
+
+    private int position(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException();
+        return index * JoystickRecorder.RECORD_SIZE;
+    }
+}
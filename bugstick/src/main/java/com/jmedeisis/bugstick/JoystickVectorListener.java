@@ -0,0 +1,18 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Extension of {@link JoystickListener} that receives the stick position as a normalized vector
+ * rather than as an angle and offset, avoiding any trigonometry on the touch path.
+ * If the listener set on a {@link Joystick} implements this interface,
+ * {@link #onDragVector(float, float)} is called in place of
+ * {@link JoystickListener#onDrag(float, float)}.
+ */
+public interface JoystickVectorListener extends JoystickListener {
+    /**
+     * The vector length is the normalized offset, 0 -> 1.
+     *
+     * @param x -1 (left) -> 1 (right).
+     * @param y -1 (down) -> 1 (up), consistent with {@link JoystickListener#onDrag} degrees.
+     */
+    void onDragVector(float x, float y);
+}
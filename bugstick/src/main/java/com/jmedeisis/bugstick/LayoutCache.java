@@ -0,0 +1,76 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+
+/**
+ * Results of the most recent measure pass and radius calculation of a {@link Joystick}, with the
+ * inputs they were computed from, so that repeated layout passes with unchanged inputs, e.g. while
+ * scrolling, skip the work. Has no Android framework dependencies, so that it may be tested on the
+ * JVM.
+ */
+final class LayoutCache {
+    /*
+    MEASURE
+    Valid until the specs change or a layout is requested, e.g. by a resized stick.
+     */
+    private boolean measureValid;
+    private int widthMeasureSpec, heightMeasureSpec;
+    private int measuredWidthAndState, measuredHeightAndState;
+
+    /*
+    RADIUS
+     */
+    private boolean radiusValid;
+    private int radiusWidth, radiusHeight;
+    private float radiusStickWidth, radiusStickHeight;
+    private MotionConstraint radiusMotionConstraint;
+
+    /**
+     * @return True if the measured size may be reused for these specs.
+     */
+    boolean hasMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        return measureValid && widthMeasureSpec == this.widthMeasureSpec
+                && heightMeasureSpec == this.heightMeasureSpec;
+    }
+
+    void storeMeasure(int widthMeasureSpec, int heightMeasureSpec, int measuredWidthAndState,
+                      int measuredHeightAndState) {
+        measureValid = true;
+        this.widthMeasureSpec = widthMeasureSpec;
+        this.heightMeasureSpec = heightMeasureSpec;
+        this.measuredWidthAndState = measuredWidthAndState;
+        this.measuredHeightAndState = measuredHeightAndState;
+    }
+
+    int getMeasuredWidthAndState() {
+        return measuredWidthAndState;
+    }
+
+    int getMeasuredHeightAndState() {
+        return measuredHeightAndState;
+    }
+
+    void invalidateMeasure() {
+        measureValid = false;
+    }
+
+    /**
+     * @return True if the radius was last calculated from these inputs.
+     */
+    boolean hasRadius(int width, int height, float stickWidth, float stickHeight,
+                      MotionConstraint motionConstraint) {
+        return radiusValid && width == radiusWidth && height == radiusHeight
+                && stickWidth == radiusStickWidth && stickHeight == radiusStickHeight
+                && motionConstraint == radiusMotionConstraint;
+    }
+
+    void storeRadius(int width, int height, float stickWidth, float stickHeight,
+                     MotionConstraint motionConstraint) {
+        radiusValid = true;
+        radiusWidth = width;
+        radiusHeight = height;
+        radiusStickWidth = stickWidth;
+        radiusStickHeight = stickHeight;
+        radiusMotionConstraint = motionConstraint;
+    }
+}
@@ -0,0 +1,21 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Where the stick offset is measured from while it is touched.
+ */
+public enum OriginMode {
+    /**
+     * The center of the joystick.
+     */
+    FIXED,
+    /**
+     * The point where the touch went down, so that the stick does not jump when pressed off
+     * center.
+     */
+    FLOATING,
+    /**
+     * As {@link #FLOATING}, and the origin is dragged along behind a touch that moves further
+     * than the radius from it.
+     */
+    FOLLOWING
+}
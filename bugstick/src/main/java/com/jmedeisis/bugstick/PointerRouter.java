@@ -0,0 +1,138 @@
+package com.jmedeisis.bugstick;
+
+import java.util.Arrays;
+
+/**
+ * Assigns the pointers of a multi-touch gesture to the sticks of a {@link JoystickGroup}, free of
+ * any Android framework dependency so that routing may be tested on the JVM.
+ * <p>
+ * A pointer that goes down within the touch area of a free stick takes the nearest such stick,
+ * and keeps it until it goes up; each stick is held by at most one pointer. Looking up the stick
+ * of a pointer is a single array read, and nothing allocates once the sticks are set.
+ * Not thread-safe.
+ */
+final class PointerRouter {
+    /**
+     * Pointer ids are small, and reused as pointers go up; {@code MotionEvent} keeps them within
+     * 0 -> 31. Pointers with larger ids are never routed.
+     */
+    static final int MAX_POINTER_ID = 31;
+
+    static final int NO_STICK = -1;
+
+    private final int[] stickByPointer = new int[MAX_POINTER_ID + 1];
+
+    private int stickCount;
+    private int[] pointerByStick = new int[0];
+    private float[] centerX = new float[0];
+    private float[] centerY = new float[0];
+    private float[] touchRadius = new float[0];
+
+    PointerRouter() {
+        Arrays.fill(stickByPointer, NO_STICK);
+    }
+
+    int getStickCount() {
+        return stickCount;
+    }
+
+    /**
+     * Releases every stick, and resizes the router for the given number of sticks, each without a
+     * touch area until {@link #setStick} is called.
+     */
+    void setStickCount(int stickCount) {
+        if (stickCount < 0) throw new IllegalArgumentException("Stick count must not be negative");
+
+        if (stickCount > pointerByStick.length) {
+            pointerByStick = new int[stickCount];
+            centerX = new float[stickCount];
+            centerY = new float[stickCount];
+            touchRadius = new float[stickCount];
+        }
+        this.stickCount = stickCount;
+        Arrays.fill(touchRadius, -1);
+        clear();
+    }
+
+    /**
+     * @param touchRadius Distance from the center, in pixels, within which a pointer going down
+     *                    may take the stick.
+     */
+    void setStick(int stick, float centerX, float centerY, float touchRadius) {
+        if (stick < 0 || stick >= stickCount) {
+            throw new IndexOutOfBoundsException("No stick " + stick + " of " + stickCount);
+        }
+        this.centerX[stick] = centerX;
+        this.centerY[stick] = centerY;
+        this.touchRadius[stick] = touchRadius;
+    }
+
+    /**
+     * Assigns a pointer that went down to the nearest free stick whose touch area contains it.
+     *
+     * @return The stick the pointer now holds, or {@link #NO_STICK}.
+     */
+    int down(int pointerId, float x, float y) {
+        if (pointerId < 0 || pointerId > MAX_POINTER_ID) return NO_STICK;
+        if (NO_STICK != stickByPointer[pointerId]) return NO_STICK; // already down
+
+        int nearest = NO_STICK;
+        float nearestDistanceSquared = Float.MAX_VALUE;
+        for (int stick = 0; stick < stickCount; stick++) {
+            if (JoystickCore.INVALID_POINTER_ID != pointerByStick[stick]) continue;
+
+            final float dx = x - centerX[stick];
+            final float dy = y - centerY[stick];
+            final float distanceSquared = dx * dx + dy * dy;
+            final float radius = touchRadius[stick];
+            if (radius < 0 || distanceSquared > radius * radius) continue;
+            if (distanceSquared < nearestDistanceSquared) {
+                nearest = stick;
+                nearestDistanceSquared = distanceSquared;
+            }
+        }
+
+        if (NO_STICK != nearest) {
+            stickByPointer[pointerId] = nearest;
+            pointerByStick[nearest] = pointerId;
+        }
+        return nearest;
+    }
+
+    /**
+     * @return The stick held by the given pointer, or {@link #NO_STICK}.
+     */
+    int route(int pointerId) {
+        if (pointerId < 0 || pointerId > MAX_POINTER_ID) return NO_STICK;
+        return stickByPointer[pointerId];
+    }
+
+    /**
+     * Releases the stick held by a pointer that went up.
+     *
+     * @return The stick the pointer held, or {@link #NO_STICK}.
+     */
+    int up(int pointerId) {
+        final int stick = route(pointerId);
+        if (NO_STICK == stick) return NO_STICK;
+
+        stickByPointer[pointerId] = NO_STICK;
+        pointerByStick[stick] = JoystickCore.INVALID_POINTER_ID;
+        return stick;
+    }
+
+    /**
+     * @return The pointer holding the given stick, or {@link JoystickCore#INVALID_POINTER_ID}.
+     */
+    int getPointer(int stick) {
+        return pointerByStick[stick];
+    }
+
+    /**
+     * Releases every stick, e.g. when the gesture is canceled.
+     */
+    void clear() {
+        Arrays.fill(stickByPointer, NO_STICK);
+        Arrays.fill(pointerByStick, JoystickCore.INVALID_POINTER_ID);
+    }
+}
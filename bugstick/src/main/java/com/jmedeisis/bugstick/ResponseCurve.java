@@ -0,0 +1,116 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Maps the normalized stick position to the reported output, applying dead zones and a response
+ * function.
+ * The response function is sampled once into a lookup table on construction, so evaluating the
+ * curve per touch event costs the same regardless of how expensive the function is.
+ * Instances are immutable and may be shared between joysticks.
+ */
+public final class ResponseCurve {
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * A response function over the normalized offset beyond the radial dead zone.
+     */
+    public interface Function {
+        /**
+         * @param input 0 -> 1.
+         * @return 0 -> 1, and should be 1 for an input of 1 so the full range stays reachable.
+         */
+        float apply(float input);
+    }
+
+    private final float radialDeadZone;
+    private final float axialDeadZone;
+    private final float[] table = new float[TABLE_SIZE + 1];
+
+    /**
+     * @param radialDeadZone Normalized offset, 0 -> 1, below which the stick reports no offset.
+     * @param axialDeadZone  Normalized distance, 0 -> 1, from either axis below which the
+     *                       corresponding component is reported as 0. Useful to make it easy to
+     *                       move straight along an axis.
+     * @param function       Applied to the offset that remains beyond the radial dead zone.
+     */
+    public ResponseCurve(float radialDeadZone, float axialDeadZone, Function function) {
+        if (radialDeadZone < 0 || radialDeadZone >= 1 || axialDeadZone < 0 || axialDeadZone >= 1) {
+            throw new IllegalArgumentException("Dead zones must be in the range [0, 1)");
+        }
+
+        this.radialDeadZone = radialDeadZone;
+        this.axialDeadZone = axialDeadZone;
+
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            final float input = (float) i / TABLE_SIZE;
+            table[i] = input <= radialDeadZone ? 0 :
+                    function.apply((input - radialDeadZone) / (1 - radialDeadZone));
+        }
+    }
+
+    /**
+     * @param exponent 1 for a linear response; greater than 1 for finer control near the center.
+     */
+    public static ResponseCurve exponential(float radialDeadZone, float axialDeadZone,
+                                            float exponent) {
+        return new ResponseCurve(radialDeadZone, axialDeadZone, new ExponentialFunction(exponent));
+    }
+
+    public float getRadialDeadZone() {
+        return radialDeadZone;
+    }
+
+    public float getAxialDeadZone() {
+        return axialDeadZone;
+    }
+
+    /**
+     * @param out Receives the shaped position as {x, y}; may be the same array as the input.
+     */
+    void apply(float x, float y, float[] out) {
+        if (axialDeadZone > 0) {
+            x = applyAxialDeadZone(x);
+            y = applyAxialDeadZone(y);
+        }
+
+        final float offset = (float) Math.sqrt(x * x + y * y);
+        if (0 == offset) {
+            out[0] = 0;
+            out[1] = 0;
+            return;
+        }
+
+        final float scale = lookup(offset) / offset;
+        out[0] = x * scale;
+        out[1] = y * scale;
+    }
+
+    private float applyAxialDeadZone(float value) {
+        final float magnitude = Math.abs(value);
+        if (magnitude <= axialDeadZone) return 0;
+
+        final float scaled = (magnitude - axialDeadZone) / (1 - axialDeadZone);
+        return value < 0 ? -scaled : scaled;
+    }
+
+    private float lookup(float input) {
+        if (input >= 1) return table[TABLE_SIZE];
+
+        final float position = input * TABLE_SIZE;
+        final int index = (int) position;
+        final float fraction = position - index;
+        return table[index] + fraction * (table[index + 1] - table[index]);
+    }
+
+    private static final class ExponentialFunction implements Function {
+        private final float exponent;
+
+        ExponentialFunction(float exponent) {
+            this.exponent = exponent;
+        }
+
+        @Override
+        public float apply(float input) {
+            return (float) Math.pow(input, exponent);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+
+/**
+ * The geometry behind {@link Joystick}, free of any Android framework dependency so that it can
+ * be exercised and measured on a plain JVM.
+ * Positions are in pixels relative to the joystick center, with y increasing downwards.
+ */
+public final class StickGeometry {
+
+    private StickGeometry() {
+    }
+
+    /**
+     * @return The maximum offset of a stick of the given size from the center of a base of the
+     * given size.
+     */
+    public static float radius(MotionConstraint motionConstraint, int width, int height,
+                               float stickWidth, float stickHeight) {
+        final float stickHalfWidth = stickWidth / 2;
+        final float stickHalfHeight = stickHeight / 2;
+
+        switch (motionConstraint) {
+            case HORIZONTAL:
+                return (float) width / 2 - stickHalfWidth;
+            case VERTICAL:
+                return (float) height / 2 - stickHalfHeight;
+            default:
+                return (float) Math.min(width, height) / 2 - Math.max(stickHalfWidth, stickHalfHeight);
+        }
+    }
+
+    /**
+     * @return True if a touch that has wandered by (dx, dy) from where it went down should be
+     * considered a drag.
+     */
+    public static boolean exceedsSlop(MotionConstraint motionConstraint, float dx, float dy,
+                                      int touchSlop) {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+
+        switch (motionConstraint) {
+            case HORIZONTAL:
+                return dx > touchSlop;
+            case VERTICAL:
+                return dy > touchSlop;
+            default:
+                return dx * dx + dy * dy > touchSlop * touchSlop;
+        }
+    }
+
+    /**
+     * Applies the motion constraint to (x, y) and clamps the result to within radius of the
+     * center. Snapping for {@link MotionConstraint#DIRECTIONAL} is stateful and applied separately.
+     *
+     * @param out Receives the constrained position as {x, y}.
+     */
+    public static void constrain(MotionConstraint motionConstraint, float x, float y,
+                                 float radius, float[] out) {
+        switch (motionConstraint) {
+            case HORIZONTAL:
+                y = 0;
+                break;
+            case VERTICAL:
+                x = 0;
+                break;
+        }
+
+        final float distanceSquared = x * x + y * y;
+        if (distanceSquared > radius * radius) {
+            final float distance = (float) Math.sqrt(distanceSquared);
+            x = radius * x / distance;
+            y = radius * y / distance;
+        }
+
+        out[0] = x;
+        out[1] = y;
+    }
+
+    /**
+     * @return -180 -> 180, counter-clockwise from the positive x axis.
+     */
+    public static float degrees(float x, float y) {
+        final double radians = Math.atan2(-y, x);
+        return (float) (180 * radians / Math.PI);
+    }
+
+    /**
+     * @return Normalized, 0 -> 1.
+     */
+    public static float offset(float x, float y, float radius) {
+        if (0 == radius) return 0;
+        final float offset = (float) Math.sqrt(x * x + y * y) / radius;
+        return offset > 1 ? 1 : offset;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Constant-velocity extrapolation of a touch trace, used to compensate for the latency between a
+ * finger moving and the corresponding motion event being delivered.
+ * Velocity is exponentially smoothed across samples to keep sensor noise from being amplified by
+ * the look-ahead.
+ */
+final class StickPredictor {
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+    private static final long MAX_SAMPLE_GAP_MS = 100;
+
+    private boolean hasSample;
+    private float lastX, lastY;
+    private long lastTime;
+    private float velocityX, velocityY; // pixels per ms
+
+    void reset() {
+        hasSample = false;
+        velocityX = velocityY = 0;
+    }
+
+    void addSample(float x, float y, long eventTime) {
+        if (hasSample) {
+            final long dt = eventTime - lastTime;
+            if (dt > MAX_SAMPLE_GAP_MS) {
+                // the finger rested; stale velocity would fling the prediction away
+                velocityX = velocityY = 0;
+            } else if (dt > 0) {
+                velocityX += VELOCITY_SMOOTHING * ((x - lastX) / dt - velocityX);
+                velocityY += VELOCITY_SMOOTHING * ((y - lastY) / dt - velocityY);
+            }
+        }
+
+        hasSample = true;
+        lastX = x;
+        lastY = y;
+        lastTime = eventTime;
+    }
+
+    float predictX(int lookAheadMs) {
+        return lastX + velocityX * lookAheadMs;
+    }
+
+    float predictY(int lookAheadMs) {
+        return lastY + velocityY * lookAheadMs;
+    }
+}
@@ -0,0 +1,81 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Damped spring pulling the stick back to the center after release.
+ * Stepped with semi-implicit Euler in fixed sub-steps, so it stays stable for any frame interval.
+ */
+final class StickSpring {
+    private static final float SUB_STEP_S = 1 / 240f;
+    private static final float MAX_STEP_S = 1 / 20f;
+    private static final float REST_DISTANCE_PX = 0.5f;
+    private static final float REST_SPEED_PX_PER_S = 10f;
+
+    private float stiffness;
+    private float damping;
+
+    private float x, y;
+    private float velocityX, velocityY;
+
+    /**
+     * @param stiffness    Spring constant per unit mass, in 1/s^2.
+     * @param dampingRatio 1 for critical damping; less than 1 to overshoot and oscillate.
+     */
+    StickSpring(float stiffness, float dampingRatio) {
+        configure(stiffness, dampingRatio);
+    }
+
+    void configure(float stiffness, float dampingRatio) {
+        if (stiffness <= 0 || dampingRatio <= 0) {
+            throw new IllegalArgumentException("Stiffness and damping ratio must be positive");
+        }
+
+        this.stiffness = stiffness;
+        this.damping = 2 * dampingRatio * (float) Math.sqrt(stiffness);
+    }
+
+    float getStiffness() {
+        return stiffness;
+    }
+
+    float getDampingRatio() {
+        return damping / (2 * (float) Math.sqrt(stiffness));
+    }
+
+    void start(float x, float y) {
+        this.x = x;
+        this.y = y;
+        velocityX = velocityY = 0;
+    }
+
+    /**
+     * @return True if the stick is still moving, false once it has come to rest at the center.
+     */
+    boolean step(float seconds) {
+        float remaining = Math.min(seconds, MAX_STEP_S);
+        while (remaining > 0) {
+            final float dt = Math.min(remaining, SUB_STEP_S);
+            velocityX += (-stiffness * x - damping * velocityX) * dt;
+            velocityY += (-stiffness * y - damping * velocityY) * dt;
+            x += velocityX * dt;
+            y += velocityY * dt;
+            remaining -= dt;
+        }
+
+        if (x * x + y * y < REST_DISTANCE_PX * REST_DISTANCE_PX
+                && velocityX * velocityX + velocityY * velocityY
+                < REST_SPEED_PX_PER_S * REST_SPEED_PX_PER_S) {
+            x = y = 0;
+            velocityX = velocityY = 0;
+            return false;
+        }
+        return true;
+    }
+
+    float getX() {
+        return x;
+    }
+
+    float getY() {
+        return y;
+    }
+}
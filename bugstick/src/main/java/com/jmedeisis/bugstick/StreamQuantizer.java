@@ -0,0 +1,68 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Quantization and delta state shared by {@link JoystickStreamEncoder} and
+ * {@link JoystickStreamDecoder}, so both ends agree exactly on the arithmetic.
+ * Angle deltas wrap around, so crossing -180/180 degrees costs as little as any small turn.
+ */
+final class StreamQuantizer {
+    private static final int MAX_BITS = 16;
+
+    private final int angleBits;
+    private final int angleLevels;
+    private final int offsetMax;
+
+    private int previousAngle;
+    private int previousOffset;
+
+    StreamQuantizer(int angleBits, int offsetBits) {
+        if (angleBits < 1 || angleBits > MAX_BITS || offsetBits < 1 || offsetBits > MAX_BITS) {
+            throw new IllegalArgumentException("Bit widths must be in the range [1, " + MAX_BITS + "]");
+        }
+
+        this.angleBits = angleBits;
+        this.angleLevels = 1 << angleBits;
+        this.offsetMax = (1 << offsetBits) - 1;
+    }
+
+    int quantizeAngle(float degrees) {
+        return Math.round((degrees + 180) / 360 * angleLevels) & (angleLevels - 1);
+    }
+
+    float dequantizeAngle(int angle) {
+        return (float) angle * 360 / angleLevels - 180;
+    }
+
+    int quantizeOffset(float offset) {
+        return Math.round(Math.max(0, Math.min(1, offset)) * offsetMax);
+    }
+
+    float dequantizeOffset(int offset) {
+        return (float) offset / offsetMax;
+    }
+
+    /**
+     * @return Shortest signed distance around the circle from the previous angle.
+     */
+    int angleDelta(int angle) {
+        final int shift = Integer.SIZE - angleBits;
+        return ((angle - previousAngle) << shift) >> shift;
+    }
+
+    int applyAngleDelta(int delta) {
+        return (previousAngle + delta) & (angleLevels - 1);
+    }
+
+    int offsetDelta(int offset) {
+        return offset - previousOffset;
+    }
+
+    int applyOffsetDelta(int delta) {
+        return previousOffset + delta;
+    }
+
+    void setPrevious(int angle, int offset) {
+        previousAngle = angle;
+        previousOffset = offset;
+    }
+}
@@ -0,0 +1,279 @@
+package com.jmedeisis.bugstick;
+
+/**
+ * Maps the gravity vector reported by a device's sensors to a stick position. Has no Android
+ * framework dependencies, so that tilt input may be tested on the JVM with synthetic sensor
+ * streams.
+ * <p>
+ * Samples are queued with {@link #addSample} into a preallocated buffer, typically in bursts when
+ * the sensor batches them, and folded through a low-pass filter by {@link #update()}, once per
+ * burst. The position is measured from a neutral orientation, but neither clamped nor constrained;
+ * {@link JoystickCore#onAxisEvent(float, float, long)} does that as for any other input.
+ * Not thread-safe.
+ */
+public final class TiltMapper {
+    /*
+    Display rotations, equal to the corresponding android.view.Surface constants.
+     */
+    public static final int ROTATION_0 = 0;
+    public static final int ROTATION_90 = 1;
+    public static final int ROTATION_180 = 2;
+    public static final int ROTATION_270 = 3;
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float DEFAULT_MAX_TILT = 30;
+    private static final float DEFAULT_DEAD_ZONE = 3;
+    private static final float DEFAULT_TIME_CONSTANT = 0.05f;
+    private static final float NANOS_PER_SECOND = 1000000000f;
+
+    private float maxTilt = DEFAULT_MAX_TILT;
+    private float deadZone = DEFAULT_DEAD_ZONE;
+    private float timeConstant = DEFAULT_TIME_CONSTANT;
+    private int displayRotation = ROTATION_0;
+
+    /*
+    Queued samples, oldest first from head.
+     */
+    private final float[] samples; // x, y, z per sample
+    private final long[] timestamps;
+    private int head;
+    private int count;
+
+    private final float[] gravity = new float[3];
+    private long gravityTimestamp;
+    private boolean hasGravity;
+
+    private boolean calibrationPending;
+    private float neutralX, neutralY;
+
+    private float x, y;
+
+    public TiltMapper() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of samples that may be queued between updates, e.g. the size of the
+     *                 sensor's FIFO. Should more arrive, the oldest are filtered early.
+     */
+    public TiltMapper(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        samples = new float[capacity * 3];
+        timestamps = new long[capacity];
+    }
+
+    /*
+    CONFIGURATION
+     */
+    public float getMaxTilt() {
+        return maxTilt;
+    }
+
+    /**
+     * @param maxTilt Tilt from the neutral orientation, in degrees, that fully deflects the stick.
+     *                Defaults to 30.
+     */
+    public void setMaxTilt(float maxTilt) {
+        if (maxTilt <= deadZone) {
+            throw new IllegalArgumentException("Max tilt must exceed the dead zone");
+        }
+        this.maxTilt = maxTilt;
+    }
+
+    public float getDeadZone() {
+        return deadZone;
+    }
+
+    /**
+     * @param deadZone Tilt from the neutral orientation, in degrees, within which the stick is
+     *                 centered, and therefore released. Defaults to 3.
+     */
+    public void setDeadZone(float deadZone) {
+        if (deadZone < 0 || deadZone >= maxTilt) {
+            throw new IllegalArgumentException("Dead zone must be 0 or more, and less than the "
+                    + "max tilt");
+        }
+        this.deadZone = deadZone;
+    }
+
+    public float getTimeConstant() {
+        return timeConstant;
+    }
+
+    /**
+     * @param timeConstant Time constant of the low-pass filter in seconds, or 0 to disable it.
+     *                     Larger values smooth out more hand tremor, at the cost of latency.
+     *                     Defaults to 0.05.
+     */
+    public void setTimeConstant(float timeConstant) {
+        if (timeConstant < 0) {
+            throw new IllegalArgumentException("Time constant must not be negative");
+        }
+        this.timeConstant = timeConstant;
+    }
+
+    public int getDisplayRotation() {
+        return displayRotation;
+    }
+
+    /**
+     * @param displayRotation One of the ROTATION_ constants, the rotation of the display from the
+     *                        device's natural orientation, which the sensor axes are fixed to.
+     */
+    public void setDisplayRotation(int displayRotation) {
+        this.displayRotation = displayRotation;
+    }
+
+    /**
+     * Takes the orientation at the next {@link #update()} as the neutral one.
+     */
+    public void calibrate() {
+        calibrationPending = true;
+    }
+
+    /**
+     * Discards all samples and filter state, and centers the stick.
+     */
+    public void reset() {
+        head = count = 0;
+        hasGravity = false;
+        x = y = 0;
+    }
+
+    /*
+    SAMPLES
+     */
+
+    /**
+     * Queues a sample of the gravity, or acceleration, vector in the device's natural coordinate
+     * system, as reported by {@code SensorEvent#values}.
+     *
+     * @param timestamp In nanoseconds, as reported by {@code SensorEvent#timestamp}.
+     */
+    public void addSample(float x, float y, float z, long timestamp) {
+        final int capacity = timestamps.length;
+        if (count == capacity) {
+            filter(head);
+            head = (head + 1) % capacity;
+            count--;
+        }
+
+        final int index = (head + count) % capacity;
+        samples[3 * index] = x;
+        samples[3 * index + 1] = y;
+        samples[3 * index + 2] = z;
+        timestamps[index] = timestamp;
+        count++;
+    }
+
+    /**
+     * Filters the queued samples, and maps the result to a stick position.
+     *
+     * @return True if the stick position changed.
+     */
+    public boolean update() {
+        final int capacity = timestamps.length;
+        while (count > 0) {
+            filter(head);
+            head = (head + 1) % capacity;
+            count--;
+        }
+        if (!hasGravity) return false;
+
+        final float magnitude = (float) Math.sqrt(gravity[0] * gravity[0]
+                + gravity[1] * gravity[1] + gravity[2] * gravity[2]);
+        if (0 == magnitude) return false;
+
+        // sensor axes are fixed to the natural orientation; align them with the display
+        final float screenX, screenY;
+        switch (displayRotation) {
+            case ROTATION_90:
+                screenX = -gravity[1];
+                screenY = gravity[0];
+                break;
+            case ROTATION_180:
+                screenX = -gravity[0];
+                screenY = -gravity[1];
+                break;
+            case ROTATION_270:
+                screenX = gravity[1];
+                screenY = -gravity[0];
+                break;
+            default:
+                screenX = gravity[0];
+                screenY = gravity[1];
+                break;
+        }
+
+        // the sensor reports the reaction to gravity, so an axis tilted down reads negative;
+        // tilting right moves the stick right, tilting the top edge down moves it up
+        final float tiltX = angle(-screenX / magnitude);
+        final float tiltY = angle(screenY / magnitude);
+        if (calibrationPending) {
+            calibrationPending = false;
+            neutralX = tiltX;
+            neutralY = tiltY;
+        }
+
+        final float dx = tiltX - neutralX;
+        final float dy = tiltY - neutralY;
+        final float tilt = (float) Math.sqrt(dx * dx + dy * dy);
+
+        float newX = 0, newY = 0;
+        if (tilt > deadZone) {
+            final float scale = (tilt - deadZone) / (maxTilt - deadZone) / tilt;
+            newX = dx * scale;
+            newY = dy * scale;
+        }
+
+        final boolean changed = newX != x || newY != y;
+        x = newX;
+        y = newY;
+        return changed;
+    }
+
+    private void filter(int index) {
+        final long timestamp = timestamps[index];
+        if (!hasGravity) {
+            System.arraycopy(samples, 3 * index, gravity, 0, 3);
+            gravityTimestamp = timestamp;
+            hasGravity = true;
+            return;
+        }
+
+        final float dt = Math.max(0, (timestamp - gravityTimestamp) / NANOS_PER_SECOND);
+        final float alpha = 0 == timeConstant ? 1 : dt / (timeConstant + dt);
+        for (int i = 0; i < 3; i++) {
+            gravity[i] += alpha * (samples[3 * index + i] - gravity[i]);
+        }
+        gravityTimestamp = timestamp;
+    }
+
+    /**
+     * @return The angle, in degrees, of a unit vector with the given component from the plane
+     * normal to that component's axis.
+     */
+    private static float angle(float component) {
+        if (component > 1) component = 1;
+        else if (component < -1) component = -1;
+        return (float) Math.toDegrees(Math.asin(component));
+    }
+
+    /*
+    STICK POSITION
+     */
+
+    /**
+     * @return -1 (left) -> 1 (right) within the max tilt, and beyond it outside.
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * @return -1 (up) -> 1 (down) within the max tilt, and beyond it outside.
+     */
+    public float getY() {
+        return y;
+    }
+}
@@ -0,0 +1,142 @@
+package com.jmedeisis.bugstick;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.view.WindowManager;
+
+/**
+ * Drives a {@link Joystick} by tilting the device, as an alternative to touch. Tilt is fed through
+ * the same constraint, clamp and dispatch path as touch, so the joystick's listeners receive
+ * {@link JoystickListener#onDrag(float, float)} as usual. The stick is released while the device
+ * is held within the dead zone of the orientation it had when started, and touches are ignored
+ * while it is tilted.
+ * <p>
+ * Uses the fused gravity sensor where available, and the accelerometer otherwise. Where supported,
+ * the sensor batches samples in its hardware FIFO, which lets the application processor sleep in
+ * between; each batch is filtered and applied to the stick at once.
+ * Must be used on the UI thread.
+ *
+ * @see TiltMapper
+ */
+public final class TiltSource {
+
+    private static final int DEFAULT_MAX_REPORT_LATENCY_US = 40000;
+
+    private final Joystick joystick;
+    private final TiltMapper mapper;
+    private final SensorManager sensorManager;
+    private int maxReportLatencyUs = DEFAULT_MAX_REPORT_LATENCY_US;
+    private boolean started;
+
+    private final SensorEventListener sensorListener = new SensorEventListener() {
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            mapper.addSample(event.values[0], event.values[1], event.values[2], event.timestamp);
+            // runs once the rest of the batch has been delivered
+            if (!updatePosted) {
+                updatePosted = true;
+                joystick.post(update);
+            }
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+    };
+
+    private boolean updatePosted;
+    private final Runnable update = new Runnable() {
+        @Override
+        public void run() {
+            updatePosted = false;
+            if (mapper.update()) {
+                joystick.onTilt(mapper.getX(), mapper.getY(), SystemClock.uptimeMillis());
+            }
+        }
+    };
+
+    public TiltSource(@NonNull Joystick joystick) {
+        this(joystick, new TiltMapper());
+    }
+
+    /**
+     * @param mapper Configures how the orientation maps to the stick position.
+     */
+    public TiltSource(@NonNull Joystick joystick, @NonNull TiltMapper mapper) {
+        this.joystick = joystick;
+        this.mapper = mapper;
+        sensorManager = (SensorManager) joystick.getContext()
+                .getSystemService(Context.SENSOR_SERVICE);
+    }
+
+    public TiltMapper getMapper() {
+        return mapper;
+    }
+
+    public int getMaxReportLatencyUs() {
+        return maxReportLatencyUs;
+    }
+
+    /**
+     * @param maxReportLatencyUs Maximum time, in microseconds, samples may be batched before
+     *                           delivery, on API 19 and above. Longer batches save more power,
+     *                           but delay the stick. Defaults to 40000; 0 disables batching.
+     *                           Takes effect on the next {@link #start()}.
+     */
+    public void setMaxReportLatencyUs(int maxReportLatencyUs) {
+        this.maxReportLatencyUs = maxReportLatencyUs;
+    }
+
+    /**
+     * Starts tilt input, taking the current orientation as neutral.
+     *
+     * @return False if the device has no suitable sensor.
+     */
+    public boolean start() {
+        if (started) return true;
+
+        Sensor sensor = sensorManager.getDefaultSensor(Sensor.TYPE_GRAVITY);
+        if (null == sensor) sensor = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        if (null == sensor) return false;
+
+        final WindowManager windowManager = (WindowManager) joystick.getContext()
+                .getSystemService(Context.WINDOW_SERVICE);
+        mapper.reset();
+        mapper.setDisplayRotation(windowManager.getDefaultDisplay().getRotation());
+        mapper.calibrate();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            started = sensorManager.registerListener(sensorListener, sensor,
+                    SensorManager.SENSOR_DELAY_GAME, maxReportLatencyUs);
+        } else {
+            started = sensorManager.registerListener(sensorListener, sensor,
+                    SensorManager.SENSOR_DELAY_GAME);
+        }
+        return started;
+    }
+
+    /**
+     * Stops tilt input, and releases the stick.
+     */
+    public void stop() {
+        if (!started) return;
+        started = false;
+
+        sensorManager.unregisterListener(sensorListener);
+        joystick.removeCallbacks(update);
+        updatePosted = false;
+
+        mapper.reset();
+        joystick.onTilt(0, 0, SystemClock.uptimeMillis());
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+}
@@ -0,0 +1,207 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Replays synthetic touch gestures through {@link JoystickCore} and everything {@link Joystick}
+ * calls on each event outside the framework: the state publisher, recorder, metrics and listener
+ * registrations, and asserts that no event allocates, using the JVM's per-thread allocation
+ * counter.
+ */
+public class JoystickAllocationTest {
+    private static final int EVENTS = 1 << 16;
+    private static final float CENTER = 200;
+    private static final float RADIUS = 150;
+
+    private final int[] actions = new int[EVENTS];
+    private final float[] x = new float[EVENTS];
+    private final float[] y = new float[EVENTS];
+
+    private JoystickCore core;
+    private final JoystickStatePublisher statePublisher = new JoystickStatePublisher();
+    private final JoystickState state = new JoystickState();
+    private final JoystickRecorder recorder = new JoystickRecorder(1024);
+    private final JoystickMetrics metrics = new JoystickMetrics();
+    private JoystickListenerRegistration angleRegistration;
+    private JoystickListenerRegistration vectorRegistration;
+    private long eventTime;
+    private float sink;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(3);
+        int i = 0;
+        while (i < EVENTS) {
+            final int length = Math.min(EVENTS - i, 2 + random.nextInt(64));
+            float px = CENTER + (random.nextFloat() - 0.5f) * RADIUS;
+            float py = CENTER + (random.nextFloat() - 0.5f) * RADIUS;
+            for (int g = 0; g < length; g++, i++) {
+                px += (random.nextFloat() - 0.5f) * 24;
+                py += (random.nextFloat() - 0.5f) * 24;
+                actions[i] = 0 == g ? JoystickCore.ACTION_DOWN
+                        : length - 1 == g ? JoystickCore.ACTION_UP : JoystickCore.ACTION_MOVE;
+                x[i] = px;
+                y[i] = py;
+            }
+        }
+        actions[EVENTS - 1] = JoystickCore.ACTION_UP;
+
+        angleRegistration = new JoystickListenerRegistration(new JoystickListener() {
+            @Override
+            public void onDown() {
+            }
+
+            @Override
+            public void onDrag(float degrees, float offset) {
+                sink += degrees + offset;
+            }
+
+            @Override
+            public void onUp() {
+            }
+        }, null, 0, null);
+        vectorRegistration = new JoystickListenerRegistration(new JoystickVectorListener() {
+            @Override
+            public void onDragVector(float x, float y) {
+                sink += x + y;
+            }
+
+            @Override
+            public void onDown() {
+            }
+
+            @Override
+            public void onDrag(float degrees, float offset) {
+            }
+
+            @Override
+            public void onUp() {
+            }
+        }, null, 0, null);
+
+        core = new JoystickCore(new JoystickCore.Callback() {
+            @Override
+            public void onStartDetectingDrag(long eventTime) {
+                publish(eventTime);
+                recorder.recordDown(eventTime);
+                angleRegistration.onDown();
+                vectorRegistration.onDown();
+            }
+
+            @Override
+            public void onDragStart(long eventTime) {
+            }
+
+            @Override
+            public void onDrag(long eventTime) {
+                publish(eventTime);
+                final float degrees = core.getDegrees();
+                final float offset = core.getOffset();
+                recorder.recordDrag(degrees, offset, eventTime);
+                final long start = System.nanoTime();
+                angleRegistration.onDrag(degrees, offset, core.getVectorX(), core.getVectorY(),
+                        eventTime);
+                vectorRegistration.onDrag(degrees, offset, core.getVectorX(), core.getVectorY(),
+                        eventTime);
+                metrics.onListenerReturned(start, eventTime);
+            }
+
+            @Override
+            public void onDragStop(long eventTime, boolean locked) {
+            }
+
+            @Override
+            public void onStopDetectingDrag(long eventTime, boolean locked) {
+                core.centerStick();
+                publish(eventTime);
+                recorder.recordUp(eventTime);
+                angleRegistration.onUp();
+                vectorRegistration.onUp();
+            }
+        });
+        core.setCenter(CENTER, CENTER);
+        core.setRadius(RADIUS);
+        core.setTouchSlop(8);
+        core.setMetrics(metrics);
+    }
+
+    private void publish(long eventTime) {
+        statePublisher.publish(core.isDetectingDrag(), core.getVectorX(), core.getVectorY(),
+                eventTime);
+        // as a game loop polling on another thread would
+        statePublisher.read(state);
+    }
+
+    private void replay() {
+        for (int i = 0; i < EVENTS; i++) {
+            eventTime += 8;
+            metrics.onEvent(System.nanoTime());
+            recorder.recordTouch(actions[i], 0, x[i], y[i], eventTime);
+            core.processTouch(actions[i], 0, x[i], y[i], eventTime);
+        }
+    }
+
+    /**
+     * @return Bytes allocated by the current thread while replaying the events.
+     */
+    private long allocatedByReplay() {
+        final com.sun.management.ThreadMXBean threads = allocationCounter();
+        final long thread = Thread.currentThread().getId();
+
+        // warm up, so that class loading and lazy initialization are not counted
+        replay();
+        replay();
+
+        // the counter itself may allocate; measure that too
+        final long calibrationStart = threads.getThreadAllocatedBytes(thread);
+        final long calibration = threads.getThreadAllocatedBytes(thread) - calibrationStart;
+
+        final long start = threads.getThreadAllocatedBytes(thread);
+        replay();
+        return threads.getThreadAllocatedBytes(thread) - start - calibration;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(counter.isThreadAllocatedMemorySupported());
+        counter.setThreadAllocatedMemoryEnabled(true);
+        return counter;
+    }
+
+    @Test
+    public void touchToCallback_allocatesNothing() {
+        assertEquals(0, allocatedByReplay());
+    }
+
+    @Test
+    public void withPredictionAndResponseCurve_allocatesNothing() {
+        core.setPredictionTime(16);
+        core.setResponseCurve(ResponseCurve.exponential(0.1f, 0.05f, 2));
+        assertEquals(0, allocatedByReplay());
+    }
+
+    @Test
+    public void directional_allocatesNothing() {
+        core.setMotionConstraint(MotionConstraint.DIRECTIONAL);
+        core.setDirections(8, 2, 0.1f);
+        assertEquals(0, allocatedByReplay());
+    }
+
+    @Test
+    public void followingOrigin_allocatesNothing() {
+        core.setOriginMode(OriginMode.FOLLOWING);
+        core.setMotionConstraint(MotionConstraint.HORIZONTAL);
+        assertEquals(0, allocatedByReplay());
+    }
+}
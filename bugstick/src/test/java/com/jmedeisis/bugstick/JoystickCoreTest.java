@@ -0,0 +1,324 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JoystickCoreTest {
+    private static final float CENTER = 100;
+    private static final float RADIUS = 50;
+    private static final int TOUCH_SLOP = 8;
+    private static final float DELTA = 1e-4f;
+
+    private static final int POINTER = 3;
+    private static final int OTHER_POINTER = 7;
+
+    private final List<String> events = new ArrayList<>();
+    private JoystickCore core;
+
+    @Before
+    public void setUp() {
+        core = new JoystickCore(new JoystickCore.Callback() {
+            @Override
+            public void onStartDetectingDrag(long eventTime) {
+                events.add("down");
+            }
+
+            @Override
+            public void onDragStart(long eventTime) {
+                events.add("start");
+            }
+
+            @Override
+            public void onDrag(long eventTime) {
+                events.add("drag");
+            }
+
+            @Override
+            public void onDragStop(long eventTime, boolean locked) {
+                events.add("stop");
+            }
+
+            @Override
+            public void onStopDetectingDrag(long eventTime, boolean locked) {
+                if (!locked) core.centerStick();
+                events.add(locked ? "up locked" : "up");
+            }
+        });
+        core.setCenter(CENTER, CENTER);
+        core.setRadius(RADIUS);
+        core.setTouchSlop(TOUCH_SLOP);
+    }
+
+    private boolean touch(int action, float x, float y) {
+        return core.processTouch(action, POINTER, x, y, 0);
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+        events.clear();
+    }
+
+    private void assertStick(float x, float y) {
+        assertEquals(x, core.getStickX(), DELTA);
+        assertEquals(y, core.getStickY(), DELTA);
+    }
+
+    /*
+    FIXED ORIGIN
+     */
+    @Test
+    public void fixedOrigin_measuresFromCenterAndClampsToRadius() {
+        assertTrue(touch(JoystickCore.ACTION_DOWN, CENTER + 80, CENTER));
+        assertEvents("down", "start", "drag");
+        assertStick(RADIUS, 0);
+        assertEquals(1, core.getOffset(), DELTA);
+        assertEquals(0, core.getDegrees(), DELTA);
+
+        touch(JoystickCore.ACTION_MOVE, CENTER, CENTER - 20);
+        assertEvents("drag");
+        assertStick(0, -20);
+        assertEquals(90, core.getDegrees(), DELTA);
+        assertEquals(0.4f, core.getOffset(), DELTA);
+        assertEquals(0.4f, core.getVectorY(), DELTA);
+
+        touch(JoystickCore.ACTION_UP, CENTER, CENTER - 20);
+        assertEvents("stop", "up");
+        assertStick(0, 0);
+    }
+
+    @Test
+    public void fixedOrigin_startsDragOnlyBeyondSlop() {
+        core.setStartOnFirstTouch(false);
+
+        touch(JoystickCore.ACTION_DOWN, CENTER, CENTER);
+        touch(JoystickCore.ACTION_MOVE, CENTER + TOUCH_SLOP - 1, CENTER);
+        assertEvents("down");
+        assertFalse(core.isDragInProgress());
+
+        // the drag starts where the pointer went down, so the stick does not jump by the slop
+        touch(JoystickCore.ACTION_MOVE, CENTER + TOUCH_SLOP + 1, CENTER);
+        assertEvents("start", "drag");
+        assertStick(0, 0);
+
+        touch(JoystickCore.ACTION_MOVE, CENTER + 20, CENTER);
+        assertEvents("drag");
+        assertStick(20, 0);
+    }
+
+    @Test
+    public void horizontalConstraint_ignoresVerticalMotion() {
+        core.setMotionConstraint(MotionConstraint.HORIZONTAL);
+        core.setStartOnFirstTouch(false);
+
+        touch(JoystickCore.ACTION_DOWN, CENTER, CENTER);
+        touch(JoystickCore.ACTION_MOVE, CENTER, CENTER + 40);
+        assertFalse(core.isDragInProgress());
+        assertTrue(core.hasExceededSlop());
+
+        touch(JoystickCore.ACTION_MOVE, CENTER + 30, CENTER + 40);
+        assertTrue(core.isDragInProgress());
+        touch(JoystickCore.ACTION_MOVE, CENTER + 40, CENTER + 45);
+        assertStick(40, 0);
+    }
+
+    @Test
+    public void movesOfOtherPointersAreIgnored() {
+        touch(JoystickCore.ACTION_DOWN, CENTER, CENTER);
+        events.clear();
+
+        core.processTouch(JoystickCore.ACTION_MOVE, OTHER_POINTER, CENTER + 30, CENTER, 0);
+        core.processTouch(JoystickCore.ACTION_POINTER_UP, OTHER_POINTER, CENTER + 30, CENTER, 0);
+        assertEvents();
+        assertStick(0, 0);
+
+        core.processTouch(JoystickCore.ACTION_POINTER_UP, POINTER, CENTER, CENTER, 0);
+        assertEvents("stop", "up");
+        assertEquals(JoystickCore.INVALID_POINTER_ID, core.getActivePointerId());
+    }
+
+    @Test
+    public void lockedStickStaysInPlaceOnRelease() {
+        touch(JoystickCore.ACTION_DOWN, CENTER + 20, CENTER);
+        core.lock();
+        touch(JoystickCore.ACTION_UP, CENTER + 20, CENTER);
+        assertEvents("down", "start", "drag", "stop", "up locked");
+        assertStick(20, 0);
+
+        // the lock only applies to a single release
+        touch(JoystickCore.ACTION_DOWN, CENTER + 10, CENTER);
+        touch(JoystickCore.ACTION_UP, CENTER + 10, CENTER);
+        assertStick(0, 0);
+    }
+
+    /*
+    DIRECTIONAL
+     */
+    @Test
+    public void directional_snapsAndSkipsUnchangedPositions() {
+        core.setMotionConstraint(MotionConstraint.DIRECTIONAL);
+        core.setDirections(4, 1, 0.1f);
+
+        touch(JoystickCore.ACTION_DOWN, CENTER + 30, CENTER - 10);
+        assertEvents("down", "start", "drag");
+        assertStick(RADIUS, 0);
+        assertEquals(0, core.getDegrees(), DELTA);
+
+        // same sector, different offset
+        touch(JoystickCore.ACTION_MOVE, CENTER + 45, CENTER + 12);
+        assertEvents();
+
+        touch(JoystickCore.ACTION_MOVE, CENTER + 5, CENTER - 40);
+        assertEvents("drag");
+        assertStick(0, -RADIUS);
+        assertEquals(90, core.getDegrees(), DELTA);
+    }
+
+    @Test
+    public void directional_hysteresisHoldsDirectionAtBoundary() {
+        core.setMotionConstraint(MotionConstraint.DIRECTIONAL);
+        core.setDirections(4, 1, 0.1f);
+
+        touch(JoystickCore.ACTION_DOWN, CENTER + 40, CENTER);
+        events.clear();
+
+        // just past the 45 degree boundary between right and up
+        touch(JoystickCore.ACTION_MOVE, CENTER + 30, CENTER - 31);
+        assertEvents();
+        assertStick(RADIUS, 0);
+
+        touch(JoystickCore.ACTION_MOVE, CENTER + 20, CENTER - 40);
+        assertEvents("drag");
+        assertStick(0, -RADIUS);
+    }
+
+    /*
+    FLOATING AND FOLLOWING ORIGINS
+     */
+    @Test
+    public void floatingOrigin_measuresFromDown() {
+        core.setOriginMode(OriginMode.FLOATING);
+
+        touch(JoystickCore.ACTION_DOWN, CENTER + 80, CENTER + 10);
+        assertEquals(CENTER + 80, core.getOriginX(), DELTA);
+        assertEquals(CENTER + 10, core.getOriginY(), DELTA);
+        assertStick(0, 0);
+        assertEquals(0, core.getOffset(), DELTA);
+
+        touch(JoystickCore.ACTION_MOVE, CENTER + 100, CENTER + 10);
+        assertStick(20, 0);
+
+        // the origin stays put, so the stick clamps
+        touch(JoystickCore.ACTION_MOVE, CENTER + 200, CENTER + 10);
+        assertStick(RADIUS, 0);
+        assertEquals(CENTER + 80, core.getOriginX(), DELTA);
+
+        touch(JoystickCore.ACTION_UP, CENTER + 200, CENTER + 10);
+        assertEquals(CENTER, core.getOriginX(), DELTA);
+        assertEquals(CENTER, core.getOriginY(), DELTA);
+    }
+
+    @Test
+    public void followingOrigin_dragsAlongBeyondRadius() {
+        core.setOriginMode(OriginMode.FOLLOWING);
+
+        touch(JoystickCore.ACTION_DOWN, CENTER + 80, CENTER);
+        touch(JoystickCore.ACTION_MOVE, CENTER + 150, CENTER);
+        assertEquals(CENTER + 100, core.getOriginX(), DELTA);
+        assertStick(RADIUS, 0);
+
+        // reversing takes effect immediately rather than after travelling back the excess
+        touch(JoystickCore.ACTION_MOVE, CENTER + 80, CENTER);
+        assertEquals(CENTER + 100, core.getOriginX(), DELTA);
+        assertStick(-20, 0);
+    }
+
+    @Test
+    public void followingOrigin_followsOnlyAlongConstrainedAxis() {
+        core.setOriginMode(OriginMode.FOLLOWING);
+        core.setMotionConstraint(MotionConstraint.HORIZONTAL);
+
+        touch(JoystickCore.ACTION_DOWN, CENTER, CENTER);
+        touch(JoystickCore.ACTION_MOVE, CENTER + 70, CENTER + 200);
+        assertEquals(CENTER + 20, core.getOriginX(), DELTA);
+        assertEquals(CENTER, core.getOriginY(), DELTA);
+        assertStick(RADIUS, 0);
+    }
+
+    @Test
+    public void axisInputIgnoresOriginMode() {
+        core.setOriginMode(OriginMode.FOLLOWING);
+
+        // a diagonal is clamped, not followed
+        core.onAxisEvent(1, 1, 0);
+        assertEquals(CENTER, core.getOriginX(), DELTA);
+        assertEquals(CENTER, core.getOriginY(), DELTA);
+        assertEquals(1, core.getOffset(), DELTA);
+    }
+
+    /*
+    AXIS AND TOUCH OWNERSHIP
+     */
+    @Test
+    public void axis_pressesDragsAndReleases() {
+        core.onAxisEvent(0, 0, 0);
+        assertEvents();
+
+        core.onAxisEvent(0.5f, 0, 1);
+        assertEvents("down", "start", "drag");
+        assertStick(RADIUS / 2, 0);
+
+        core.onAxisEvent(0, -1, 2);
+        assertEvents("drag");
+        assertStick(0, -RADIUS);
+
+        core.onAxisEvent(0, 0, 3);
+        assertEvents("drag", "stop", "up");
+        assertFalse(core.isDetectingDrag());
+    }
+
+    @Test
+    public void axis_ownsStickUntilReleased() {
+        core.onAxisEvent(1, 0, 0);
+        events.clear();
+
+        assertFalse(touch(JoystickCore.ACTION_DOWN, CENTER, CENTER + 30));
+        assertFalse(touch(JoystickCore.ACTION_MOVE, CENTER, CENTER + 40));
+        assertFalse(touch(JoystickCore.ACTION_UP, CENTER, CENTER + 40));
+        assertEvents();
+        assertStick(RADIUS, 0);
+        assertTrue(core.isDragInProgress());
+
+        core.onAxisEvent(0, 0, 1);
+        events.clear();
+
+        assertTrue(touch(JoystickCore.ACTION_DOWN, CENTER, CENTER + 30));
+        assertEvents("down", "start", "drag");
+        assertStick(0, 30);
+    }
+
+    @Test
+    public void touch_ownsStickUntilReleased() {
+        touch(JoystickCore.ACTION_DOWN, CENTER, CENTER + 30);
+        events.clear();
+
+        core.onAxisEvent(1, 0, 0);
+        core.onAxisEvent(0, 0, 1);
+        assertEvents();
+        assertStick(0, 30);
+
+        touch(JoystickCore.ACTION_UP, CENTER, CENTER + 30);
+        events.clear();
+
+        core.onAxisEvent(1, 0, 2);
+        assertEvents("down", "start", "drag");
+    }
+}
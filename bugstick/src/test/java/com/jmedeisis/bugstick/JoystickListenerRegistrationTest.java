@@ -0,0 +1,122 @@
+package com.jmedeisis.bugstick;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JoystickListenerRegistrationTest {
+    private static final int GESTURES = 20000;
+    private static final int DRAGS_PER_GESTURE = 20;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Expects gestures to be replayed in order, and every drag to carry the number of the gesture
+     * it was recorded in as its angle.
+     */
+    private static class CheckingListener implements JoystickListener {
+        int downs;
+        int ups;
+        volatile String error;
+
+        @Override
+        public void onDown() {
+            if (downs != ups) fail("down within a gesture");
+            downs++;
+        }
+
+        @Override
+        public void onDrag(float degrees, float offset) {
+            if (downs == ups) fail("drag outside a gesture");
+            if (degrees != downs) fail("drag of gesture " + degrees + " delivered in " + downs);
+        }
+
+        @Override
+        public void onUp() {
+            if (downs == ups) fail("up outside a gesture");
+            ups++;
+        }
+
+        private void fail(String message) {
+            if (null == error) error = message;
+        }
+    }
+
+    @Test
+    public void slowListener_receivesOnlyDragsOfTheCurrentGesture() throws InterruptedException {
+        final CheckingListener listener = new CheckingListener() {
+            @Override
+            public void onDrag(float degrees, float offset) {
+                super.onDrag(degrees, offset);
+                // widen the window between delivery reads and further recording
+                Thread.yield();
+            }
+        };
+        final JoystickListenerRegistration registration = new JoystickListenerRegistration(
+                listener, executor, 0, null);
+
+        for (int gesture = 1; gesture <= GESTURES; gesture++) {
+            registration.onDown();
+            for (int drag = 0; drag < DRAGS_PER_GESTURE; drag++) {
+                registration.onDrag(gesture, (float) drag / DRAGS_PER_GESTURE, 0, 0, 0);
+            }
+            registration.onUp();
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertNull(listener.error);
+        assertEquals(GESTURES, listener.downs);
+        assertEquals(GESTURES, listener.ups);
+    }
+
+    @Test
+    public void directListener_receivesEveryDrag() {
+        final int[] drags = new int[1];
+        final JoystickListenerRegistration registration = new JoystickListenerRegistration(
+                new CheckingListener() {
+                    @Override
+                    public void onDrag(float degrees, float offset) {
+                        super.onDrag(degrees, offset);
+                        drags[0]++;
+                    }
+                }, null, 0, null);
+
+        registration.onDown();
+        for (int drag = 0; drag < DRAGS_PER_GESTURE; drag++) {
+            registration.onDrag(1, 0, 0, 0, 0);
+        }
+        registration.onUp();
+
+        assertEquals(DRAGS_PER_GESTURE, drags[0]);
+    }
+
+    @Test
+    public void registeredMidGesture_skipsItsRemainder() {
+        final CheckingListener listener = new CheckingListener();
+        final JoystickListenerRegistration registration = new JoystickListenerRegistration(
+                listener, null, 0, null);
+
+        registration.onUp();
+        assertEquals(0, listener.ups);
+        assertNull(listener.error);
+    }
+}
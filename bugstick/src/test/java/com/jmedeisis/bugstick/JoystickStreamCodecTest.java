@@ -0,0 +1,191 @@
+package com.jmedeisis.bugstick;
+
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JoystickStreamCodecTest {
+    private static final int ANGLE_BITS = 8;
+    private static final int OFFSET_BITS = 6;
+    private static final float ANGLE_TOLERANCE = 360f / (1 << ANGLE_BITS) / 2 + 1e-3f;
+    private static final float OFFSET_TOLERANCE = 1f / ((1 << OFFSET_BITS) - 1) / 2 + 1e-4f;
+
+    /**
+     * Records events as {type, degrees, offset} triples.
+     */
+    private static final class RecordingListener implements JoystickListener {
+        final List<float[]> events = new ArrayList<>();
+
+        @Override
+        public void onDown() {
+            events.add(new float[]{JoystickStreamEncoder.TYPE_DOWN, 0, 0});
+        }
+
+        @Override
+        public void onDrag(float degrees, float offset) {
+            events.add(new float[]{JoystickStreamEncoder.TYPE_DRAG, degrees, offset});
+        }
+
+        @Override
+        public void onUp() {
+            events.add(new float[]{JoystickStreamEncoder.TYPE_UP, 0, 0});
+        }
+    }
+
+    /**
+     * Feeds a random sequence of gestures to both the encoder and the expected record.
+     */
+    private static void generate(Random random, int gestures, JoystickListener... listeners) {
+        for (int g = 0; g < gestures; g++) {
+            for (JoystickListener listener : listeners) listener.onDown();
+            float degrees = random.nextFloat() * 360 - 180;
+            float offset = random.nextFloat();
+            final int drags = random.nextInt(20);
+            for (int i = 0; i < drags; i++) {
+                degrees += random.nextFloat() * 60 - 30;
+                if (degrees > 180) degrees -= 360;
+                else if (degrees < -180) degrees += 360;
+                offset = Math.max(0, Math.min(1, offset + random.nextFloat() * 0.4f - 0.2f));
+                for (JoystickListener listener : listeners) listener.onDrag(degrees, offset);
+            }
+            for (JoystickListener listener : listeners) listener.onUp();
+        }
+    }
+
+    private static void assertSameEvents(List<float[]> expected, List<float[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final float[] e = expected.get(i);
+            final float[] a = actual.get(i);
+            assertEquals("type of event " + i, e[0], a[0], 0);
+            float angleError = Math.abs(e[1] - a[1]);
+            angleError = Math.min(angleError, 360 - angleError);
+            assertEquals("degrees of event " + i, 0, angleError, ANGLE_TOLERANCE);
+            assertEquals("offset of event " + i, e[2], a[2], OFFSET_TOLERANCE);
+        }
+    }
+
+    @Test
+    public void loopback_reproducesEventsAndTicks() {
+        final JoystickStreamEncoder encoder = new JoystickStreamEncoder(ANGLE_BITS, OFFSET_BITS,
+                4096);
+        final JoystickStreamDecoder decoder = new JoystickStreamDecoder(ANGLE_BITS, OFFSET_BITS);
+        final RecordingListener expected = new RecordingListener();
+        final RecordingListener actual = new RecordingListener();
+        final Random random = new Random(13);
+        final ByteBuffer stream = ByteBuffer.allocate(1 << 20);
+
+        final int ticks = 500;
+        final int[] tickNumbers = new int[ticks];
+        int tick = 0;
+        for (int t = 0; t < ticks; t++) {
+            generate(random, random.nextInt(4), encoder, expected);
+            // ticks may be skipped, and an empty tick is valid
+            tick += 1 + random.nextInt(3);
+            tickNumbers[t] = tick;
+            encoder.writeTick(tick, stream);
+        }
+        assertEquals(0, encoder.getDroppedEventCount());
+
+        stream.flip();
+        for (int t = 0; t < ticks; t++) {
+            assertEquals(tickNumbers[t], decoder.readTick(stream, actual));
+        }
+        assertFalse(stream.hasRemaining());
+        assertSameEvents(expected.events, actual.events);
+    }
+
+    @Test
+    public void smoothDrags_encodeInTwoBytesPerDrag() {
+        final JoystickStreamEncoder encoder = new JoystickStreamEncoder(ANGLE_BITS, OFFSET_BITS,
+                4096);
+        final Random random = new Random(11);
+        final ByteBuffer stream = ByteBuffer.allocate(1 << 20);
+
+        // one gesture per tick, moving at most a quantization step or so per event
+        final int ticks = 200;
+        final int dragsPerTick = 60;
+        for (int t = 0; t < ticks; t++) {
+            encoder.onDown();
+            float degrees = random.nextFloat() * 360 - 180;
+            float offset = random.nextFloat();
+            for (int i = 0; i < dragsPerTick; i++) {
+                degrees += random.nextFloat() * 3 - 1.5f;
+                offset = Math.max(0, Math.min(1, offset + random.nextFloat() * 0.03f - 0.015f));
+                encoder.onDrag(degrees, offset);
+            }
+            encoder.onUp();
+            encoder.writeTick(t, stream);
+        }
+        assertEquals(0, encoder.getDroppedEventCount());
+
+        // a one byte tick delta and event count, one byte per down and up, two per drag, and up to
+        // two more for the first drag of a gesture, which jumps from where the previous one ended
+        final int events = ticks * (dragsPerTick + 2);
+        final float bytesPerEvent = (float) stream.position() / events;
+        assertTrue(bytesPerEvent + " bytes per event",
+                stream.position() <= ticks * (2 + 2 + 2 * dragsPerTick + 2));
+    }
+
+    @Test
+    public void overflow_retainsEventsForRetry() {
+        final JoystickStreamEncoder encoder = new JoystickStreamEncoder(ANGLE_BITS, OFFSET_BITS,
+                4096);
+        final JoystickStreamDecoder decoder = new JoystickStreamDecoder(ANGLE_BITS, OFFSET_BITS);
+        final RecordingListener expected = new RecordingListener();
+        final RecordingListener actual = new RecordingListener();
+        final Random random = new Random(7);
+
+        generate(random, 10, encoder, expected);
+
+        // room for the header but not the events, then not even the header
+        for (int size : new int[]{8, 1}) {
+            final ByteBuffer small = ByteBuffer.allocate(size);
+            try {
+                encoder.writeTick(1, small);
+                fail("Expected overflow of a " + size + " byte buffer");
+            } catch (BufferOverflowException expectedException) {
+                assertEquals(0, small.position());
+            }
+        }
+
+        // events arriving after the failed tick are appended to the retained ones
+        generate(random, 2, encoder, expected);
+
+        final ByteBuffer stream = ByteBuffer.allocate(4096);
+        encoder.writeTick(1, stream);
+        generate(random, 1, encoder, expected);
+        encoder.writeTick(2, stream);
+
+        stream.flip();
+        assertEquals(1, decoder.readTick(stream, actual));
+        assertEquals(2, decoder.readTick(stream, actual));
+        assertFalse(stream.hasRemaining());
+        assertSameEvents(expected.events, actual.events);
+    }
+
+    @Test
+    public void eventsBeyondCapacityAreDropped() {
+        final JoystickStreamEncoder encoder = new JoystickStreamEncoder(ANGLE_BITS, OFFSET_BITS,
+                12);
+        for (int i = 0; i < 10; i++) encoder.onDown();
+        assertEquals(7, encoder.getDroppedEventCount());
+
+        final ByteBuffer stream = ByteBuffer.allocate(64);
+        encoder.writeTick(1, stream);
+        stream.flip();
+
+        final RecordingListener actual = new RecordingListener();
+        new JoystickStreamDecoder(ANGLE_BITS, OFFSET_BITS).readTick(stream, actual);
+        assertEquals(3, actual.events.size());
+    }
+}
@@ -0,0 +1,101 @@
+package com.jmedeisis.bugstick;
+
+import com.jmedeisis.bugstick.Joystick.MotionConstraint;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutCacheTest {
+    private static final int FRAMES = 10000;
+
+    // as built by MeasureSpec.makeMeasureSpec(size, EXACTLY) and (size, AT_MOST)
+    private static final int EXACTLY_300 = (1 << 30) | 300;
+    private static final int AT_MOST_900 = (2 << 30) | 900;
+    private static final int EXACTLY_400 = (1 << 30) | 400;
+
+    private LayoutCache cache;
+    private int measureCount;
+    private int radiusCount;
+
+    private float stickSize = 40;
+    private MotionConstraint motionConstraint = MotionConstraint.NONE;
+
+    @Before
+    public void setUp() {
+        cache = new LayoutCache();
+    }
+
+    /**
+     * Measures and lays out like {@link Joystick}, counting the passes that do real work.
+     */
+    private void measureAndLayout(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!cache.hasMeasure(widthMeasureSpec, heightMeasureSpec)) {
+            measureCount++;
+            final int size = widthMeasureSpec & 0x3fffffff;
+            cache.storeMeasure(widthMeasureSpec, heightMeasureSpec, size, size);
+        }
+
+        final int size = cache.getMeasuredWidthAndState();
+        if (!cache.hasRadius(size, size, stickSize, stickSize, motionConstraint)) {
+            radiusCount++;
+            cache.storeRadius(size, size, stickSize, stickSize, motionConstraint);
+        }
+    }
+
+    @Test
+    public void scrolling_measuresAndCalculatesRadiusOnce() {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            // a scrolling parent forces its children to re-measure with the same specs every frame
+            measureAndLayout(EXACTLY_300, AT_MOST_900);
+        }
+
+        assertEquals(1, measureCount);
+        assertEquals(1, radiusCount);
+    }
+
+    @Test
+    public void changedSpecs_measureAgain() {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            measureAndLayout(0 == frame % 2 ? EXACTLY_300 : EXACTLY_400, AT_MOST_900);
+        }
+
+        assertEquals(FRAMES, measureCount);
+        assertEquals(FRAMES, radiusCount);
+    }
+
+    @Test
+    public void requestedLayout_measuresOnceMore() {
+        measureAndLayout(EXACTLY_300, AT_MOST_900);
+        // e.g. the stick child was resized
+        stickSize = 60;
+        cache.invalidateMeasure();
+        for (int frame = 0; frame < FRAMES; frame++) measureAndLayout(EXACTLY_300, AT_MOST_900);
+
+        assertEquals(2, measureCount);
+        assertEquals(2, radiusCount);
+    }
+
+    @Test
+    public void changedMotionConstraint_recalculatesRadiusOnly() {
+        measureAndLayout(EXACTLY_300, AT_MOST_900);
+        motionConstraint = MotionConstraint.HORIZONTAL;
+        for (int frame = 0; frame < FRAMES; frame++) measureAndLayout(EXACTLY_300, AT_MOST_900);
+
+        assertEquals(1, measureCount);
+        assertEquals(2, radiusCount);
+    }
+
+    @Test
+    public void emptyCache_hasNothing() {
+        assertFalse(cache.hasMeasure(0, 0));
+        assertFalse(cache.hasRadius(0, 0, 0, 0, null));
+
+        cache.storeMeasure(0, 0, 0, 0);
+        assertTrue(cache.hasMeasure(0, 0));
+        cache.invalidateMeasure();
+        assertFalse(cache.hasMeasure(0, 0));
+    }
+}
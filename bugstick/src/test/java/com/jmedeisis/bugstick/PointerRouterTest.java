@@ -0,0 +1,198 @@
+package com.jmedeisis.bugstick;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Routes multi-touch gestures to two sticks laid out side by side, as {@link JoystickGroup} does.
+ */
+public class PointerRouterTest {
+    private static final float LEFT_X = 200, RIGHT_X = 800, CENTER_Y = 300;
+    private static final float RADIUS = 100;
+    private static final float TOUCH_RADIUS = 150;
+
+    private static final int LEFT = 0, RIGHT = 1;
+
+    private PointerRouter router;
+    private JoystickCore[] cores;
+
+    @Before
+    public void setUp() {
+        router = new PointerRouter();
+        router.setStickCount(2);
+        router.setStick(LEFT, LEFT_X, CENTER_Y, TOUCH_RADIUS);
+        router.setStick(RIGHT, RIGHT_X, CENTER_Y, TOUCH_RADIUS);
+
+        cores = new JoystickCore[2];
+        for (int i = 0; i < cores.length; i++) {
+            final JoystickCore[] core = cores;
+            final int stick = i;
+            cores[i] = new JoystickCore(new JoystickCore.Callback() {
+                @Override
+                public void onStartDetectingDrag(long eventTime) {
+                }
+
+                @Override
+                public void onDragStart(long eventTime) {
+                }
+
+                @Override
+                public void onDrag(long eventTime) {
+                }
+
+                @Override
+                public void onDragStop(long eventTime, boolean locked) {
+                }
+
+                @Override
+                public void onStopDetectingDrag(long eventTime, boolean locked) {
+                    core[stick].centerStick();
+                }
+            });
+            cores[i].setCenter(0 == i ? LEFT_X : RIGHT_X, CENTER_Y);
+            cores[i].setRadius(RADIUS);
+        }
+    }
+
+    /*
+    Dispatch as JoystickGroup#onTouchEvent does, with the pointers of a move event as arrays.
+     */
+    private void down(int pointerId, float x, float y, long eventTime) {
+        final int stick = router.down(pointerId, x, y);
+        if (PointerRouter.NO_STICK != stick) {
+            cores[stick].processTouch(JoystickCore.ACTION_DOWN, pointerId, x, y, eventTime);
+        }
+    }
+
+    private void move(int[] pointerIds, float[] x, float[] y, long eventTime) {
+        for (int i = 0; i < pointerIds.length; i++) {
+            final int stick = router.route(pointerIds[i]);
+            if (PointerRouter.NO_STICK == stick) continue;
+
+            cores[stick].processTouch(JoystickCore.ACTION_MOVE, pointerIds[i], x[i], y[i],
+                    eventTime);
+        }
+    }
+
+    private void up(int pointerId, float x, float y, long eventTime) {
+        final int stick = router.up(pointerId);
+        if (PointerRouter.NO_STICK != stick) {
+            cores[stick].processTouch(JoystickCore.ACTION_UP, pointerId, x, y, eventTime);
+        }
+    }
+
+    @Test
+    public void down_takesNearestFreeStickInReach() {
+        assertEquals(LEFT, router.down(0, LEFT_X + 140, CENTER_Y));
+        assertEquals(RIGHT, router.down(1, RIGHT_X - 10, CENTER_Y + 20));
+        assertEquals(LEFT, router.route(0));
+        assertEquals(RIGHT, router.route(1));
+        assertEquals(0, router.getPointer(LEFT));
+        assertEquals(1, router.getPointer(RIGHT));
+
+        // out of reach of either
+        assertEquals(PointerRouter.NO_STICK, router.down(2, (LEFT_X + RIGHT_X) / 2, CENTER_Y));
+        assertEquals(PointerRouter.NO_STICK, router.route(2));
+    }
+
+    @Test
+    public void heldStick_keepsItsPointer() {
+        assertEquals(LEFT, router.down(0, LEFT_X, CENTER_Y));
+        assertEquals(PointerRouter.NO_STICK, router.down(1, LEFT_X, CENTER_Y));
+        // a pointer within reach of both takes the free one, even if farther
+        router.setStick(RIGHT, LEFT_X + 100, CENTER_Y, TOUCH_RADIUS);
+        assertEquals(RIGHT, router.down(2, LEFT_X + 10, CENTER_Y));
+
+        assertEquals(LEFT, router.up(0));
+        assertEquals(PointerRouter.NO_STICK, router.route(0));
+        assertEquals(JoystickCore.INVALID_POINTER_ID, router.getPointer(LEFT));
+        // pointer ids are reused
+        assertEquals(LEFT, router.down(0, LEFT_X, CENTER_Y));
+    }
+
+    @Test
+    public void unknownPointers_areNotRouted() {
+        assertEquals(PointerRouter.NO_STICK, router.down(-1, LEFT_X, CENTER_Y));
+        assertEquals(PointerRouter.NO_STICK,
+                router.down(PointerRouter.MAX_POINTER_ID + 1, LEFT_X, CENTER_Y));
+        assertEquals(PointerRouter.NO_STICK, router.route(PointerRouter.MAX_POINTER_ID + 1));
+        assertEquals(PointerRouter.NO_STICK, router.up(5));
+
+        assertEquals(LEFT, router.down(PointerRouter.MAX_POINTER_ID, LEFT_X, CENTER_Y));
+        router.clear();
+        assertEquals(PointerRouter.NO_STICK, router.route(PointerRouter.MAX_POINTER_ID));
+        assertEquals(JoystickCore.INVALID_POINTER_ID, router.getPointer(LEFT));
+    }
+
+    @Test
+    public void twinSticks_eachFollowsItsOwnPointer() {
+        down(0, LEFT_X, CENTER_Y, 0);
+        down(1, RIGHT_X, CENTER_Y, 8);
+
+        // pointer indices need not match ids, and change as pointers go up
+        move(new int[]{1, 0}, new float[]{RIGHT_X, LEFT_X + 50},
+                new float[]{CENTER_Y - 60, CENTER_Y}, 16);
+        assertEquals(50, cores[LEFT].getStickX(), 0);
+        assertEquals(0, cores[LEFT].getStickY(), 0);
+        assertEquals(0, cores[RIGHT].getStickX(), 0);
+        assertEquals(-60, cores[RIGHT].getStickY(), 0);
+
+        // a third pointer, on neither stick, moves neither
+        down(2, (LEFT_X + RIGHT_X) / 2, CENTER_Y, 24);
+        move(new int[]{0, 1, 2}, new float[]{LEFT_X + 50, RIGHT_X, 0},
+                new float[]{CENTER_Y, CENTER_Y - 60, 0}, 32);
+        assertEquals(50, cores[LEFT].getStickX(), 0);
+        assertEquals(-60, cores[RIGHT].getStickY(), 0);
+
+        up(0, LEFT_X + 50, CENTER_Y, 40);
+        assertEquals(false, cores[LEFT].isDetectingDrag());
+        assertEquals(0, cores[LEFT].getStickX(), 0);
+        move(new int[]{1}, new float[]{RIGHT_X + 500}, new float[]{CENTER_Y}, 48);
+        assertEquals(RADIUS, cores[RIGHT].getStickX(), 1e-3f);
+        assertEquals(0, cores[LEFT].getStickX(), 0);
+    }
+
+    @Test
+    public void twinStickGestures_allocateNothing() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(counter.isThreadAllocatedMemorySupported());
+        counter.setThreadAllocatedMemoryEnabled(true);
+        final long thread = Thread.currentThread().getId();
+
+        final int[] pointerIds = {0, 1};
+        final float[] x = new float[2];
+        final float[] y = new float[2];
+
+        // warm up, then measure the same gestures, and what the counter itself allocates
+        long allocated = 0;
+        for (int run = 0; run < 3; run++) {
+            final long calibrationStart = counter.getThreadAllocatedBytes(thread);
+            final long calibration = counter.getThreadAllocatedBytes(thread) - calibrationStart;
+            final long start = counter.getThreadAllocatedBytes(thread);
+            long eventTime = 0;
+            for (int gesture = 0; gesture < 1000; gesture++) {
+                down(0, LEFT_X, CENTER_Y, eventTime += 8);
+                down(1, RIGHT_X, CENTER_Y, eventTime += 8);
+                for (int i = 0; i < 32; i++) {
+                    x[0] = LEFT_X + i;
+                    y[0] = CENTER_Y - i;
+                    x[1] = RIGHT_X - i;
+                    y[1] = CENTER_Y + i;
+                    move(pointerIds, x, y, eventTime += 8);
+                }
+                up(1, x[1], y[1], eventTime += 8);
+                up(0, x[0], y[0], eventTime += 8);
+            }
+            allocated = counter.getThreadAllocatedBytes(thread) - start - calibration;
+        }
+        assertEquals(0, allocated);
+    }
+}
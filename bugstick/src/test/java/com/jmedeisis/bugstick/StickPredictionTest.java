@@ -0,0 +1,168 @@
+package com.jmedeisis.bugstick;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays recorded touch traces through {@link JoystickCore} with and without prediction, and
+ * measures how far the reported stick position is from where the finger actually was one
+ * look-ahead later in the trace.
+ */
+public class StickPredictionTest {
+    private static final float CENTER = 200;
+    private static final float RADIUS = 150;
+    private static final int SAMPLE_MS = 8; // 120 Hz touch sampling
+    private static final int LOOK_AHEAD_SAMPLES = 2;
+    private static final int PREDICTION_MS = LOOK_AHEAD_SAMPLES * SAMPLE_MS;
+    private static final int SAMPLES = 2000;
+    // ignored at the start, while the predictor has no velocity yet
+    private static final int SETTLE_SAMPLES = 4;
+
+    /**
+     * Finger positions, relative to the center, sampled every {@link #SAMPLE_MS}.
+     */
+    private interface Motion {
+        float x(int sample);
+
+        float y(int sample);
+    }
+
+    /**
+     * Records the motion as a single touch gesture, and reads it back as a saved trace would be.
+     */
+    private static JoystickTrace record(Motion motion) throws IOException {
+        final JoystickRecorder recorder = new JoystickRecorder(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            final int action = 0 == i ? JoystickCore.ACTION_DOWN
+                    : SAMPLES - 1 == i ? JoystickCore.ACTION_UP : JoystickCore.ACTION_MOVE;
+            recorder.recordTouch(action, 0, CENTER + motion.x(i), CENTER + motion.y(i),
+                    (long) i * SAMPLE_MS);
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+        return JoystickTrace.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * @return Root mean square distance, in pixels, between each reported stick position and the
+     * recorded touch one look-ahead later.
+     */
+    private static float predictionError(JoystickTrace trace, int predictionTime) {
+        final float[] stickX = new float[trace.size()];
+        final float[] stickY = new float[trace.size()];
+        final boolean[] reported = new boolean[trace.size()];
+        final JoystickCore[] core = new JoystickCore[1];
+        core[0] = new JoystickCore(new JoystickCore.Callback() {
+            @Override
+            public void onStartDetectingDrag(long eventTime) {
+            }
+
+            @Override
+            public void onDragStart(long eventTime) {
+            }
+
+            @Override
+            public void onDrag(long eventTime) {
+                final int sample = (int) (eventTime / SAMPLE_MS);
+                stickX[sample] = core[0].getStickX();
+                stickY[sample] = core[0].getStickY();
+                reported[sample] = true;
+            }
+
+            @Override
+            public void onDragStop(long eventTime, boolean locked) {
+            }
+
+            @Override
+            public void onStopDetectingDrag(long eventTime, boolean locked) {
+            }
+        });
+        core[0].setCenter(CENTER, CENTER);
+        core[0].setRadius(RADIUS);
+        core[0].setPredictionTime(predictionTime);
+        trace.replay(core[0]);
+
+        double sumSquares = 0;
+        int count = 0;
+        for (int i = SETTLE_SAMPLES; i + LOOK_AHEAD_SAMPLES < trace.size() - 1; i++) {
+            assertTrue(reported[i]);
+            final int future = i + LOOK_AHEAD_SAMPLES;
+            assertEquals(JoystickTrace.TYPE_TOUCH, trace.getType(future));
+            final float dx = stickX[i] - (trace.getX(future) - CENTER);
+            final float dy = stickY[i] - (trace.getY(future) - CENTER);
+            sumSquares += dx * dx + dy * dy;
+            count++;
+        }
+        return (float) Math.sqrt(sumSquares / count);
+    }
+
+    @Test
+    public void circling_predictionHalvesError() throws IOException {
+        // one revolution per second, well within the base
+        final JoystickTrace trace = record(new Motion() {
+            @Override
+            public float x(int sample) {
+                return 100 * (float) Math.cos(2 * Math.PI * sample * SAMPLE_MS / 1000);
+            }
+
+            @Override
+            public float y(int sample) {
+                return 100 * (float) Math.sin(2 * Math.PI * sample * SAMPLE_MS / 1000);
+            }
+        });
+
+        final float lag = predictionError(trace, 0);
+        final float predicted = predictionError(trace, PREDICTION_MS);
+        assertTrue("lag " + lag + ", predicted " + predicted, predicted < lag / 2);
+    }
+
+    @Test
+    public void noisySweeps_predictionReducesError() throws IOException {
+        // back and forth twice a second, with a pixel of sensor noise
+        final Random random = new Random(5);
+        final float[] noise = new float[2 * SAMPLES];
+        for (int i = 0; i < noise.length; i++) noise[i] = random.nextFloat() * 2 - 1;
+        final JoystickTrace trace = record(new Motion() {
+            @Override
+            public float x(int sample) {
+                return 120 * (float) Math.sin(2 * Math.PI * sample * SAMPLE_MS / 500)
+                        + noise[2 * sample];
+            }
+
+            @Override
+            public float y(int sample) {
+                return 30 * (float) Math.sin(2 * Math.PI * sample * SAMPLE_MS / 1300)
+                        + noise[2 * sample + 1];
+            }
+        });
+
+        final float lag = predictionError(trace, 0);
+        final float predicted = predictionError(trace, PREDICTION_MS);
+        assertTrue("lag " + lag + ", predicted " + predicted, predicted < lag * 0.75f);
+    }
+
+    @Test
+    public void resting_predictionAddsNoError() throws IOException {
+        final JoystickTrace trace = record(new Motion() {
+            @Override
+            public float x(int sample) {
+                return 40;
+            }
+
+            @Override
+            public float y(int sample) {
+                return -25;
+            }
+        });
+
+        assertEquals(0, predictionError(trace, PREDICTION_MS), 1e-3f);
+    }
+}
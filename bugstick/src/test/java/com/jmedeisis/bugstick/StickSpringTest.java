@@ -0,0 +1,67 @@
+package com.jmedeisis.bugstick;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StickSpringTest {
+    private static final float FRAME_S = 1 / 60f;
+    private static final int MAX_FRAMES = 600;
+
+    @Test
+    public void comesToRestAtCenter() {
+        for (float dampingRatio : new float[]{0.3f, 1f, 2f}) {
+            final StickSpring spring = new StickSpring(2000, dampingRatio);
+            spring.start(120, -80);
+
+            int frames = 0;
+            while (spring.step(FRAME_S)) {
+                assertTrue("still moving after " + MAX_FRAMES + " frames", ++frames < MAX_FRAMES);
+            }
+            assertEquals(0, spring.getX(), 0);
+            assertEquals(0, spring.getY(), 0);
+        }
+    }
+
+    @Test
+    public void criticallyDamped_doesNotOvershoot() {
+        final StickSpring spring = new StickSpring(2000, 1);
+        spring.start(100, 0);
+
+        float previous = 100;
+        while (spring.step(FRAME_S)) {
+            assertTrue(spring.getX() >= 0);
+            assertTrue(spring.getX() <= previous);
+            previous = spring.getX();
+        }
+    }
+
+    /**
+     * The joystick returns a floating origin and the stick on separate springs; their sum must
+     * follow the spring of the whole drawn offset, so the stick does not jump at rest.
+     */
+    @Test
+    public void separateSprings_sumToSpringOfTotal() {
+        final StickSpring origin = new StickSpring(2000, 0.5f);
+        final StickSpring stick = new StickSpring(2000, 0.5f);
+        final StickSpring total = new StickSpring(2000, 0.5f);
+        origin.start(-140, 60);
+        stick.start(45, 30);
+        total.start(-140 + 45, 60 + 30);
+
+        boolean moving = true;
+        for (int frame = 0; moving; frame++) {
+            assertTrue(frame < MAX_FRAMES);
+            final boolean stickMoving = stick.step(FRAME_S);
+            moving = origin.step(FRAME_S) | stickMoving;
+            total.step(FRAME_S);
+
+            // each spring snaps to rest within half a pixel
+            assertEquals(total.getX(), origin.getX() + stick.getX(), 1);
+            assertEquals(total.getY(), origin.getY() + stick.getY(), 1);
+        }
+        assertFalse(total.step(FRAME_S));
+    }
+}
@@ -0,0 +1,220 @@
+package com.jmedeisis.bugstick;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds synthetic gravity streams, as a device held at known angles would report them, through
+ * {@link TiltMapper}.
+ */
+public class TiltMapperTest {
+    private static final float G = 9.81f;
+    private static final long SAMPLE_NS = 10000000; // 100 Hz
+    private static final float TOLERANCE = 1e-4f;
+
+    private TiltMapper mapper;
+    private long timestamp;
+
+    @Before
+    public void setUp() {
+        mapper = new TiltMapper();
+    }
+
+    /**
+     * Queues the reading of a device in its natural orientation, with its right edge tilted down
+     * by the given angle, and its top edge by the other.
+     */
+    private void addTilt(float rightDownDegrees, float topDownDegrees) {
+        final float x = -G * (float) Math.sin(Math.toRadians(rightDownDegrees));
+        final float y = -G * (float) Math.sin(Math.toRadians(topDownDegrees));
+        addSample(x, y, (float) Math.sqrt(G * G - x * x - y * y));
+    }
+
+    private void addSample(float x, float y, float z) {
+        mapper.addSample(x, y, z, timestamp);
+        timestamp += SAMPLE_NS;
+    }
+
+    /**
+     * @return The stick offset for a tilt, with the default dead zone of 3 and max tilt of 30.
+     */
+    private static float offsetForTilt(float degrees) {
+        return (degrees - 3) / (30 - 3);
+    }
+
+    @Test
+    public void flat_centersStick() {
+        addTilt(0, 0);
+        assertFalse(mapper.update());
+        assertEquals(0, mapper.getX(), 0);
+        assertEquals(0, mapper.getY(), 0);
+    }
+
+    @Test
+    public void deadZoneAndMaxTilt_scaleOffset() {
+        mapper.setTimeConstant(0);
+
+        addTilt(2, 0);
+        assertFalse(mapper.update());
+        assertEquals(0, mapper.getX(), 0);
+
+        addTilt(16.5f, 0);
+        assertTrue(mapper.update());
+        assertEquals(0.5f, mapper.getX(), TOLERANCE);
+        assertEquals(0, mapper.getY(), TOLERANCE);
+
+        addTilt(30, 0);
+        mapper.update();
+        assertEquals(1, mapper.getX(), TOLERANCE);
+
+        // not clamped; the joystick does that
+        addTilt(45, 0);
+        mapper.update();
+        assertEquals(offsetForTilt(45), mapper.getX(), TOLERANCE);
+
+        // the top edge down moves the stick up
+        addTilt(0, 16.5f);
+        mapper.update();
+        assertEquals(0, mapper.getX(), TOLERANCE);
+        assertEquals(-0.5f, mapper.getY(), TOLERANCE);
+
+        mapper.setDeadZone(0);
+        mapper.setMaxTilt(10);
+        addTilt(-5, 0);
+        mapper.update();
+        assertEquals(-0.5f, mapper.getX(), TOLERANCE);
+    }
+
+    @Test
+    public void lowPass_followsStepByTimeConstant() {
+        // one sample interval per time constant, so each sample moves gravity halfway
+        mapper.setTimeConstant(SAMPLE_NS / 1e9f);
+        mapper.setDeadZone(0);
+
+        addTilt(0, 0);
+        mapper.update();
+        float expectedX = 0, expectedZ = G;
+        final float stepX = -G * (float) Math.sin(Math.toRadians(20));
+        final float stepZ = G * (float) Math.cos(Math.toRadians(20));
+        for (int i = 0; i < 20; i++) {
+            addSample(stepX, 0, stepZ);
+            mapper.update();
+            expectedX += (stepX - expectedX) / 2;
+            expectedZ += (stepZ - expectedZ) / 2;
+
+            final float magnitude = (float) Math.sqrt(expectedX * expectedX
+                    + expectedZ * expectedZ);
+            final float expectedTilt = (float) Math.toDegrees(Math.asin(-expectedX / magnitude));
+            assertEquals("sample " + i, expectedTilt / 30, mapper.getX(), TOLERANCE);
+        }
+        assertEquals(20f / 30, mapper.getX(), TOLERANCE);
+    }
+
+    @Test
+    public void lowPass_burstMatchesSampleBySample() {
+        final TiltMapper burst = new TiltMapper();
+        for (int i = 0; i < 40; i++) {
+            final float degrees = 25 * (float) Math.sin(i / 5f);
+            final float x = -G * (float) Math.sin(Math.toRadians(degrees));
+            final float z = G * (float) Math.cos(Math.toRadians(degrees));
+            burst.addSample(x, 0, z, timestamp);
+            addSample(x, 0, z);
+            mapper.update();
+        }
+
+        burst.update();
+        assertEquals(mapper.getX(), burst.getX(), 0);
+        assertEquals(mapper.getY(), burst.getY(), 0);
+    }
+
+    @Test
+    public void displayRotation_mapsSensorAxesToScreen() {
+        mapper.setTimeConstant(0);
+        final float s = G * (float) Math.sin(Math.toRadians(16.5));
+        final float c = G * (float) Math.cos(Math.toRadians(16.5));
+        // per rotation, the natural x and y of the display's right edge down, then its top edge
+        final float[][] readings = {
+                {-s, 0, 0, -s},
+                {0, s, -s, 0},
+                {s, 0, 0, s},
+                {0, -s, s, 0},
+        };
+        final int[] rotations = {TiltMapper.ROTATION_0, TiltMapper.ROTATION_90,
+                TiltMapper.ROTATION_180, TiltMapper.ROTATION_270};
+
+        for (int r = 0; r < rotations.length; r++) {
+            mapper.setDisplayRotation(rotations[r]);
+
+            addSample(readings[r][0], readings[r][1], c);
+            mapper.update();
+            assertEquals("x of rotation " + r, 0.5f, mapper.getX(), TOLERANCE);
+            assertEquals("y of rotation " + r, 0, mapper.getY(), TOLERANCE);
+
+            addSample(readings[r][2], readings[r][3], c);
+            mapper.update();
+            assertEquals("x of rotation " + r, 0, mapper.getX(), TOLERANCE);
+            assertEquals("y of rotation " + r, -0.5f, mapper.getY(), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void calibrate_measuresFromCurrentOrientation() {
+        mapper.setTimeConstant(0);
+
+        addTilt(20, -10);
+        mapper.update();
+        mapper.calibrate();
+        assertTrue(mapper.update());
+        assertEquals(0, mapper.getX(), 0);
+        assertEquals(0, mapper.getY(), 0);
+
+        addTilt(20 + 16.5f, -10);
+        mapper.update();
+        assertEquals(0.5f, mapper.getX(), TOLERANCE);
+        assertEquals(0, mapper.getY(), TOLERANCE);
+
+        // only the next update is taken as neutral
+        addTilt(20, -10 + 16.5f);
+        mapper.update();
+        assertEquals(0, mapper.getX(), TOLERANCE);
+        assertEquals(-0.5f, mapper.getY(), TOLERANCE);
+    }
+
+    @Test
+    public void fullBuffer_foldsOldestSamples() {
+        final TiltMapper small = new TiltMapper(4);
+        for (int i = 0; i < 50; i++) {
+            final float degrees = 40 * (float) Math.sin(i / 7f);
+            final long t = i * SAMPLE_NS;
+            final float x = -G * (float) Math.sin(Math.toRadians(degrees));
+            final float z = G * (float) Math.cos(Math.toRadians(degrees));
+            mapper.addSample(x, 0, z, t);
+            small.addSample(x, 0, z, t);
+        }
+
+        assertTrue(mapper.update());
+        assertTrue(small.update());
+        assertEquals(mapper.getX(), small.getX(), 0);
+        assertEquals(mapper.getY(), small.getY(), 0);
+    }
+
+    @Test
+    public void reset_discardsFilterState() {
+        addTilt(30, 0);
+        mapper.update();
+        assertTrue(mapper.getX() > 0);
+
+        mapper.reset();
+        assertEquals(0, mapper.getX(), 0);
+        assertFalse(mapper.update());
+
+        // the next sample is taken as is, rather than filtered against the old ones
+        addTilt(16.5f, 0);
+        mapper.update();
+        assertEquals(0.5f, mapper.getX(), TOLERANCE);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bugstick;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.Random;
+
+/**
+ * Many bugs sharing one velocity, for load testing.
+ * Kept as a structure of primitive arrays and integrated in one batched pass, which also packs
+ * the positions for {@link Canvas#drawPoints(float[], int, int, Paint)}, so a step costs a single
+ * linear sweep and no allocation however many bugs there are.
+ */
+class BugSwarm {
+
+    private static final float MIN_SPEED_FACTOR = 0.5f;
+    private static final float MAX_SPEED_FACTOR = 1.5f;
+
+    private final int count;
+    private final float[] x;
+    private final float[] y;
+    private final float[] speedFactor; // spreads the swarm out as it moves
+    private final float[] points; // x, y per bug
+
+    private final Random random = new Random();
+
+    BugSwarm(int count) {
+        this.count = count;
+        x = new float[count];
+        y = new float[count];
+        speedFactor = new float[count];
+        points = new float[count * 2];
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Scatters the bugs uniformly across the given bounds.
+     */
+    void reset(int width, int height) {
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextFloat() * width;
+            y[i] = random.nextFloat() * height;
+            speedFactor[i] = MIN_SPEED_FACTOR
+                    + random.nextFloat() * (MAX_SPEED_FACTOR - MIN_SPEED_FACTOR);
+            points[2 * i] = x[i];
+            points[2 * i + 1] = y[i];
+        }
+    }
+
+    /**
+     * Advances all bugs, wrapping them around the given bounds.
+     *
+     * @param vx Velocity in pixels per second, scaled per bug.
+     * @param vy Velocity in pixels per second, scaled per bug.
+     */
+    void step(float dt, float vx, float vy, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+
+        final float dx = vx * dt;
+        final float dy = vy * dt;
+        final float[] x = this.x, y = this.y, speedFactor = this.speedFactor, points = this.points;
+        for (int i = 0; i < count; i++) {
+            float bx = x[i] + dx * speedFactor[i];
+            float by = y[i] + dy * speedFactor[i];
+            if (bx < 0) bx += width;
+            else if (bx >= width) bx -= width;
+            if (by < 0) by += height;
+            else if (by >= height) by -= height;
+
+            x[i] = bx;
+            y[i] = by;
+            points[2 * i] = bx;
+            points[2 * i + 1] = by;
+        }
+    }
+
+    void draw(Canvas canvas, Paint paint) {
+        canvas.drawPoints(points, 0, count * 2, paint);
+    }
+}
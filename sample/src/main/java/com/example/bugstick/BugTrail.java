@@ -0,0 +1,127 @@
+package com.example.bugstick;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * The most recent stretch of a bug's path, up to a maximum length.
+ * Kept as line segments in fixed-size ring buffers, with the total length tracked incrementally,
+ * so that appending and drawing cost the same however long the bug has been moving.
+ */
+class BugTrail {
+
+    private final float maxLength;
+    private final float minSegmentLength;
+    private final int capacity;
+
+    private final float[] lines; // x0, y0, x1, y1 per segment, oldest at head
+    private final float[] lengths;
+    private int head;
+    private int count;
+    private double length; // double, as it is updated incrementally for as long as the bug moves
+
+    private float lastX, lastY;
+
+    /**
+     * @param maxLength        Length in pixels beyond which the oldest part of the trail is dropped.
+     * @param minSegmentLength Movements shorter than this extend the newest segment rather than
+     *                         start a new one, which bounds the number of segments.
+     */
+    BugTrail(float maxLength, float minSegmentLength) {
+        this.maxLength = maxLength;
+        this.minSegmentLength = minSegmentLength;
+
+        // all but the newest and the partially trimmed oldest segment are at least minSegmentLength
+        capacity = (int) Math.ceil(maxLength / minSegmentLength) + 2;
+        lines = new float[capacity * 4];
+        lengths = new float[capacity];
+    }
+
+    /**
+     * Clears the trail and starts it anew at the given point.
+     */
+    void reset(float x, float y) {
+        head = 0;
+        count = 0;
+        length = 0;
+        lastX = x;
+        lastY = y;
+    }
+
+    void lineTo(float x, float y) {
+        if (x == lastX && y == lastY) return;
+
+        final int newest = (head + count - 1) % capacity;
+        if (count > 0 && lengths[newest] < minSegmentLength) {
+            final int i = newest * 4;
+            lines[i + 2] = x;
+            lines[i + 3] = y;
+            length -= lengths[newest];
+            lengths[newest] = distance(lines[i], lines[i + 1], x, y);
+            length += lengths[newest];
+        } else {
+            if (count == capacity) dropOldest();
+
+            final int segment = (head + count) % capacity;
+            final int i = segment * 4;
+            lines[i] = lastX;
+            lines[i + 1] = lastY;
+            lines[i + 2] = x;
+            lines[i + 3] = y;
+            lengths[segment] = distance(lastX, lastY, x, y);
+            length += lengths[segment];
+            count++;
+        }
+
+        lastX = x;
+        lastY = y;
+
+        trim();
+    }
+
+    /**
+     * Drops or shortens the oldest segments until the trail is no longer than its maximum length.
+     */
+    private void trim() {
+        float excess = (float) (length - maxLength);
+        while (excess > 0 && count > 0) {
+            if (lengths[head] <= excess) {
+                excess -= lengths[head];
+                dropOldest();
+                continue;
+            }
+
+            final int i = head * 4;
+            final float fraction = excess / lengths[head];
+            lines[i] += (lines[i + 2] - lines[i]) * fraction;
+            lines[i + 1] += (lines[i + 3] - lines[i + 1]) * fraction;
+            lengths[head] -= excess;
+            length -= excess;
+            excess = 0;
+        }
+    }
+
+    private void dropOldest() {
+        length -= lengths[head];
+        head = (head + 1) % capacity;
+        count--;
+        if (0 == count) length = 0;
+    }
+
+    void draw(Canvas canvas, Paint paint) {
+        if (0 == count) return;
+
+        // the ring buffer holds at most two contiguous runs of segments
+        final int firstRun = Math.min(count, capacity - head);
+        canvas.drawLines(lines, head * 4, firstRun * 4, paint);
+        if (firstRun < count) {
+            canvas.drawLines(lines, 0, (count - firstRun) * 4, paint);
+        }
+    }
+
+    private static float distance(float x0, float y0, float x1, float y1) {
+        final float dx = x1 - x0;
+        final float dy = y1 - y0;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -1,39 +1,90 @@
 package com.example.bugstick;
 
-import android.animation.TimeAnimator;
-import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
 import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PathEffect;
-import android.graphics.PathMeasure;
 import android.graphics.PointF;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.view.View;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import com.jmedeisis.bugstick.Joystick;
+import com.jmedeisis.bugstick.JoystickState;
+import com.jmedeisis.bugstick.LatencyHistogram;
 
 /**
  * A simple toy view for demo purposes.
- * Displays a circle and a trail that can be controlled via {@link #setVelocity(float, float)}.
+ * Displays a circle and a trail that can be controlled via {@link #setJoystick(Joystick, float)}.
+ * <p>
+ * The bug is simulated in fixed time steps on a dedicated thread, which polls the joystick without
+ * locks and renders to the surface directly, interpolating between steps. A busy UI thread
+ * therefore neither stalls nor destabilizes the simulation.
+ * <p>
+ * In stress test mode, see {@link #setStressTest(int)}, a swarm of bugs driven by
+ * {@link #setSwarmVelocity(float, float)} is simulated instead, and frame time percentiles are
+ * reported to a {@link FrameStatsListener}.
  */
-public class BugView extends View implements TimeAnimator.TimeListener {
+public class BugView extends SurfaceView implements SurfaceHolder.Callback {
 
     private static final float BUG_RADIUS_DP = 4f;
     private static final float BUG_TRAIL_DP = 200f;
+    private static final float BUG_TRAIL_SEGMENT_DP = 2f;
+    private static final float SWARM_BUG_SIZE_DP = 2f;
+
+    private static final float SIMULATION_STEP_S = 1 / 120f;
+    /** Caps the simulated time per frame, so that a long stall does not cause a burst of steps. */
+    private static final float MAX_FRAME_TIME_S = 0.25f;
+    private static final long SURFACE_RETRY_MS = 16;
+    private static final float NANOS_PER_SECOND = 1000000000f;
+    private static final float NANOS_PER_MILLI = 1000000f;
+    private static final long FRAME_STATS_WINDOW_NS = 1000000000L;
+
+    /**
+     * Receives frame time percentiles on the UI thread, once per second while the view renders.
+     */
+    public interface FrameStatsListener {
+        void onFrameStats(float p50Ms, float p90Ms, float p99Ms);
+    }
 
     private Paint paint;
-    private TimeAnimator animator;
+    private Paint swarmPaint;
 
     private float density;
-    private int width, height;
+
+    private volatile Joystick joystick;
+    private volatile float maxSpeed; // pixels per second
+    private volatile int surfaceWidth, surfaceHeight;
+    private SimulationThread simulationThread;
+
+    private volatile BugSwarm swarm;
+    private volatile long swarmVelocity; // both components packed, so they are read consistently
+
+    private volatile FrameStatsListener frameStatsListener;
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+    private volatile float frameTimeP50, frameTimeP90, frameTimeP99;
+    private final Runnable frameStatsDispatch = new Runnable() {
+        @Override
+        public void run() {
+            final FrameStatsListener listener = frameStatsListener;
+            if (null != listener) listener.onFrameStats(frameTimeP50, frameTimeP90, frameTimeP99);
+        }
+    };
+
+    /*
+    Simulation state, accessed only by the simulation thread.
+     */
+    private int width = -1, height = -1;
     private PointF position;
+    private PointF previousPosition;
     private PointF velocity;
-    private Path path;
-    private PathMeasure pathMeasure;
+    private JoystickState stickState;
+    private BugTrail trail;
+    private BugSwarm activeSwarm;
+    private long frameStatsWindowStart;
 
     public BugView(Context context) {
         super(context);
@@ -57,68 +108,202 @@ public class BugView extends View implements TimeAnimator.TimeListener {
     }
 
     private void init(Context context) {
-        animator = new TimeAnimator();
-        animator.setTimeListener(this);
+        getHolder().addCallback(this);
 
         paint = new Paint();
         paint.setColor(Color.WHITE);
 
         density = getResources().getDisplayMetrics().density;
 
-        path = new Path();
-        pathMeasure = new PathMeasure();
+        swarmPaint = new Paint();
+        swarmPaint.setColor(Color.WHITE);
+        swarmPaint.setStrokeWidth(SWARM_BUG_SIZE_DP * density);
+
+        trail = new BugTrail(BUG_TRAIL_DP * density, BUG_TRAIL_SEGMENT_DP * density);
         position = new PointF();
+        previousPosition = new PointF();
         velocity = new PointF();
+        stickState = new JoystickState();
     }
 
     /**
-     * Start applying velocity as soon as view is on-screen.
+     * @param joystick    Polled once per frame for the bug's velocity, or null to stop the bug.
+     * @param maxSpeedDps Bug speed in dips per second when the stick is fully deflected.
      */
-    @Override
-    public void onAttachedToWindow() {
-        super.onAttachedToWindow();
-        animator.start();
+    public void setJoystick(Joystick joystick, float maxSpeedDps) {
+        this.maxSpeed = maxSpeedDps * density;
+        this.joystick = joystick;
+    }
+
+    /**
+     * @param bugCount Number of bugs to simulate in place of the single bug, or 0 to leave stress
+     *                 test mode.
+     */
+    public void setStressTest(int bugCount) {
+        swarm = bugCount > 0 ? new BugSwarm(bugCount) : null;
     }
 
     /**
-     * Stop animations when the view hierarchy is torn down.
+     * Sets the velocity of the stress test swarm. May be called from any thread.
+     */
+    public void setSwarmVelocity(float vxDps, float vyDps) {
+        swarmVelocity = (long) Float.floatToRawIntBits(vxDps * density) << 32
+                | Float.floatToRawIntBits(vyDps * density) & 0xffffffffL;
+    }
+
+    public void setFrameStatsListener(FrameStatsListener listener) {
+        frameStatsListener = listener;
+    }
+
+    /*
+    SURFACE LIFECYCLE
+    The simulation runs only while there is a surface to render it to.
      */
     @Override
-    public void onDetachedFromWindow() {
-        animator.cancel();
-        super.onDetachedFromWindow();
+    public void surfaceCreated(SurfaceHolder holder) {
+        simulationThread = new SimulationThread(holder);
+        simulationThread.start();
     }
 
     @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        surfaceWidth = width;
+        surfaceHeight = height;
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // the surface must not be drawn to once this returns
+        simulationThread.quit();
+        boolean joined = false;
+        while (!joined) {
+            try {
+                simulationThread.join();
+                joined = true;
+            } catch (InterruptedException e) {
+                // keep waiting
+            }
+        }
+        simulationThread = null;
+    }
+
+    private class SimulationThread extends Thread {
+        private final SurfaceHolder holder;
+        private volatile boolean running = true;
+
+        SimulationThread(SurfaceHolder holder) {
+            super(SimulationThread.class.getSimpleName());
+            this.holder = holder;
+        }
+
+        void quit() {
+            running = false;
+        }
+
+        @Override
+        public void run() {
+            long lastTime = System.nanoTime();
+            long lastFrameEnd = 0;
+            float accumulator = 0;
+            frameStatsWindowStart = lastTime;
+
+            while (running) {
+                final long now = System.nanoTime();
+                accumulator += Math.min((now - lastTime) / NANOS_PER_SECOND, MAX_FRAME_TIME_S);
+                lastTime = now;
+
+                if (width != surfaceWidth || height != surfaceHeight) {
+                    onSizeChanged(surfaceWidth, surfaceHeight);
+                }
+
+                final BugSwarm swarm = BugView.this.swarm;
+                if (swarm != activeSwarm) {
+                    activeSwarm = swarm;
+                    if (null != swarm) swarm.reset(width, height);
+                }
+
+                if (null != swarm) {
+                    final long velocity = swarmVelocity;
+                    final float vx = Float.intBitsToFloat((int) (velocity >>> 32));
+                    final float vy = Float.intBitsToFloat((int) velocity);
+                    while (accumulator >= SIMULATION_STEP_S) {
+                        swarm.step(SIMULATION_STEP_S, vx, vy, width, height);
+                        accumulator -= SIMULATION_STEP_S;
+                    }
+                } else {
+                    updateVelocity();
+                    while (accumulator >= SIMULATION_STEP_S) {
+                        step(SIMULATION_STEP_S);
+                        accumulator -= SIMULATION_STEP_S;
+                    }
+                }
+
+                // blocks until the display can take another frame, which paces the loop
+                final Canvas canvas = holder.lockCanvas();
+                if (null == canvas) {
+                    SystemClock.sleep(SURFACE_RETRY_MS);
+                    continue;
+                }
+                try {
+                    if (null != swarm) {
+                        renderSwarm(canvas, swarm);
+                    } else {
+                        render(canvas, accumulator / SIMULATION_STEP_S);
+                    }
+                } finally {
+                    holder.unlockCanvasAndPost(canvas);
+                }
+
+                final long frameEnd = System.nanoTime();
+                if (0 != lastFrameEnd) onFrame(frameEnd - lastFrameEnd, frameEnd);
+                lastFrameEnd = frameEnd;
+            }
+        }
+    }
+
+    private void onFrame(long frameTimeNanos, long now) {
+        frameTimes.record(frameTimeNanos);
+        if (now - frameStatsWindowStart < FRAME_STATS_WINDOW_NS) return;
+
+        frameTimeP50 = frameTimes.getValueAtPercentile(50) / NANOS_PER_MILLI;
+        frameTimeP90 = frameTimes.getValueAtPercentile(90) / NANOS_PER_MILLI;
+        frameTimeP99 = frameTimes.getValueAtPercentile(99) / NANOS_PER_MILLI;
+        frameTimes.reset();
+        frameStatsWindowStart = now;
+
+        if (null != frameStatsListener) post(frameStatsDispatch);
+    }
+
+    private void onSizeChanged(int w, int h) {
         width = w;
         height = h;
 
         position.set(width / 2, height / 2);
-        path.rewind();
-        path.moveTo(position.x, position.y);
+        previousPosition.set(position);
+        trail.reset(position.x, position.y);
+        if (null != activeSwarm) activeSwarm.reset(width, height);
     }
 
-    /**
-     * Set bug velocity in dips.
-     */
-    public void setVelocity(float vxDps, float vyDps) {
-        velocity.set(vxDps * density, vyDps * density);
+    private void updateVelocity() {
+        final Joystick joystick = this.joystick;
+        if (null == joystick) {
+            velocity.set(0, 0);
+            return;
+        }
+
+        joystick.getState(stickState);
+        velocity.set(stickState.getX() * maxSpeed, -stickState.getY() * maxSpeed);
     }
 
-    @Override
-    public void onTimeUpdate(TimeAnimator animation, long totalTime, long deltaTime) {
-        final float dt = deltaTime / 1000f; // seconds
+    private void step(float dt) {
+        previousPosition.set(position);
 
         position.x += velocity.x * dt;
         position.y += velocity.y * dt;
 
         bound();
 
-        path.lineTo(position.x, position.y);
-
-        invalidate();
+        trail.lineTo(position.x, position.y);
     }
 
     /**
@@ -160,26 +345,22 @@ public class BugView extends View implements TimeAnimator.TimeListener {
         }
     }
 
-    @Override
-    public void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
+    /**
+     * @param alpha Fraction, 0 -> 1, of the next simulation step that has already elapsed.
+     */
+    private void render(Canvas canvas, float alpha) {
         canvas.drawColor(Color.BLACK);
 
-        pathMeasure.setPath(path, false);
-        float length = pathMeasure.getLength();
+        trail.draw(canvas, paint);
 
-        if (length > BUG_TRAIL_DP * density) {
-            // Note - this is likely a poor way to accomplish the result. Just for demo purposes.
-            @SuppressLint("DrawAllocation")
-            PathEffect effect = new DashPathEffect(new float[]{length, length}, -length + BUG_TRAIL_DP * density);
-            paint.setPathEffect(effect);
-        }
+        final float x = previousPosition.x + (position.x - previousPosition.x) * alpha;
+        final float y = previousPosition.y + (position.y - previousPosition.y) * alpha;
+        canvas.drawCircle(x, y, BUG_RADIUS_DP * density, paint);
+    }
 
-        paint.setStyle(Paint.Style.STROKE);
-        canvas.drawPath(path, paint);
+    private void renderSwarm(Canvas canvas, BugSwarm swarm) {
+        canvas.drawColor(Color.BLACK);
 
-        paint.setStyle(Paint.Style.FILL);
-        canvas.drawCircle(position.x, position.y, BUG_RADIUS_DP * density, paint);
+        swarm.draw(canvas, swarmPaint);
     }
 }
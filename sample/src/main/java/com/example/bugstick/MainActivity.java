@@ -2,6 +2,9 @@ package com.example.bugstick;
 
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
 import android.widget.TextView;
 
 import com.jmedeisis.bugstick.Joystick;
@@ -10,6 +13,10 @@ import com.jmedeisis.bugstick.JoystickListener;
 public class MainActivity extends AppCompatActivity {
 
     private static final float MAX_BUG_SPEED_DP_PER_S = 300f;
+    private static final int STRESS_TEST_BUG_COUNT = 10000;
+
+    private BugView bugView;
+    private TextView frameStatsView;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -18,15 +25,18 @@ public class MainActivity extends AppCompatActivity {
 
         final TextView angleView = (TextView) findViewById(R.id.tv_angle);
         final TextView offsetView = (TextView) findViewById(R.id.tv_offset);
+        frameStatsView = (TextView) findViewById(R.id.tv_frame_stats);
 
-        final BugView bugView = (BugView) findViewById(R.id.bugview);
+        bugView = (BugView) findViewById(R.id.bugview);
 
         final String angleNoneString = getString(R.string.angle_value_none);
         final String angleValueString = getString(R.string.angle_value);
         final String offsetNoneString = getString(R.string.offset_value_none);
         final String offsetValueString = getString(R.string.offset_value);
+        final String frameStatsValueString = getString(R.string.frame_stats_value);
 
         Joystick joystick = (Joystick) findViewById(R.id.joystick);
+        bugView.setJoystick(joystick, MAX_BUG_SPEED_DP_PER_S);
         joystick.setJoystickListener(new JoystickListener() {
             @Override
             public void onDown() {
@@ -37,7 +47,7 @@ public class MainActivity extends AppCompatActivity {
                 angleView.setText(String.format(angleValueString, degrees));
                 offsetView.setText(String.format(offsetValueString, offset));
 
-                bugView.setVelocity(
+                bugView.setSwarmVelocity(
                         (float) Math.cos(degrees * Math.PI / 180f) * offset * MAX_BUG_SPEED_DP_PER_S,
                         -(float) Math.sin(degrees * Math.PI / 180f) * offset * MAX_BUG_SPEED_DP_PER_S);
             }
@@ -47,8 +57,36 @@ public class MainActivity extends AppCompatActivity {
                 angleView.setText(angleNoneString);
                 offsetView.setText(offsetNoneString);
 
-                bugView.setVelocity(0, 0);
+                bugView.setSwarmVelocity(0, 0);
             }
         });
+
+        bugView.setFrameStatsListener(new BugView.FrameStatsListener() {
+            @Override
+            public void onFrameStats(float p50Ms, float p90Ms, float p99Ms) {
+                frameStatsView.setText(String.format(frameStatsValueString, STRESS_TEST_BUG_COUNT,
+                        p50Ms, p90Ms, p99Ms));
+            }
+        });
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (R.id.action_stress == item.getItemId()) {
+            final boolean stressTest = !item.isChecked();
+            item.setChecked(stressTest);
+
+            bugView.setStressTest(stressTest ? STRESS_TEST_BUG_COUNT : 0);
+            frameStatsView.setVisibility(stressTest ? View.VISIBLE : View.GONE);
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
     }
 }
@@ -0,0 +1,130 @@
+package com.example.bugstick;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Simulates hours of a bug steered around the screen, as {@link BugView} drives it, and checks
+ * that what a frame stores and draws stays bounded however long the bug has been moving, and that
+ * frames allocate nothing. The frame time itself is measured by {@code BugTrailBenchmark}.
+ */
+public class BugTrailTest {
+    private static final float DENSITY = 3;
+    private static final float MAX_LENGTH = 200 * DENSITY;
+    private static final float MIN_SEGMENT_LENGTH = 2 * DENSITY;
+    private static final int WIDTH = 1080, HEIGHT = 1920;
+    private static final float MAX_SPEED = 400 * DENSITY; // pixels per second
+
+    private static final int STEPS_PER_SECOND = 120;
+    private static final int STEPS_PER_FRAME = 2;
+    private static final int HOURS = 4;
+    private static final int FRAMES_PER_HOUR = 3600 * STEPS_PER_SECOND / STEPS_PER_FRAME;
+
+    /**
+     * Counts what a frame draws, rather than drawing it.
+     */
+    private static final class CountingCanvas extends Canvas {
+        int drawCalls;
+        int segments;
+        float length;
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) {
+            drawCalls++;
+            segments += count / 4;
+            for (int i = offset; i < offset + count; i += 4) {
+                final float dx = pts[i + 2] - pts[i];
+                final float dy = pts[i + 3] - pts[i + 1];
+                length += (float) Math.sqrt(dx * dx + dy * dy);
+            }
+        }
+    }
+
+    private final Random random = new Random(17);
+    private float x = WIDTH / 2, y = HEIGHT / 2;
+    private float velocityX, velocityY;
+
+    /**
+     * Advances the bug by one simulation step, steering it as a joystick occasionally would.
+     */
+    private void step(BugTrail trail) {
+        if (0 == random.nextInt(STEPS_PER_SECOND)) {
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            final float speed = random.nextFloat() * MAX_SPEED;
+            velocityX = speed * (float) Math.cos(angle);
+            velocityY = speed * (float) Math.sin(angle);
+        }
+
+        x = Math.max(0, Math.min(WIDTH, x + velocityX / STEPS_PER_SECOND));
+        y = Math.max(0, Math.min(HEIGHT, y + velocityY / STEPS_PER_SECOND));
+        trail.lineTo(x, y);
+    }
+
+    /**
+     * @return The JVM's per-thread allocation counter, or null if it has none.
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+        final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+        if (!counter.isThreadAllocatedMemorySupported()) return null;
+        counter.setThreadAllocatedMemoryEnabled(true);
+        return counter;
+    }
+
+    @Test
+    public void hoursOfMovement_frameStaysBoundedAndAllocatesNothing() {
+        final BugTrail trail = new BugTrail(MAX_LENGTH, MIN_SEGMENT_LENGTH);
+        trail.reset(x, y);
+        final CountingCanvas canvas = new CountingCanvas();
+        final int maxSegments = (int) Math.ceil(MAX_LENGTH / MIN_SEGMENT_LENGTH) + 2;
+        final com.sun.management.ThreadMXBean threads = allocationCounter();
+        final long thread = Thread.currentThread().getId();
+
+        // the counter itself may allocate; measure that too
+        long calibration = 0;
+        if (null != threads) {
+            final long calibrationStart = threads.getThreadAllocatedBytes(thread);
+            calibration = threads.getThreadAllocatedBytes(thread) - calibrationStart;
+        }
+
+        for (int hour = 0; hour < HOURS; hour++) {
+            final long start = null != threads ? threads.getThreadAllocatedBytes(thread) : 0;
+            for (int frame = 0; frame < FRAMES_PER_HOUR; frame++) {
+                for (int s = 0; s < STEPS_PER_FRAME; s++) step(trail);
+
+                canvas.drawCalls = canvas.segments = 0;
+                canvas.length = 0;
+                trail.draw(canvas, null);
+                assertTrue(canvas.drawCalls <= 2);
+                assertTrue(canvas.segments <= maxSegments);
+                assertTrue(canvas.length <= MAX_LENGTH + 0.5f);
+            }
+
+            // the first hour includes class loading and other one-off work
+            if (null == threads || 0 == hour) continue;
+            final long allocated = threads.getThreadAllocatedBytes(thread) - start - calibration;
+            assertEquals("bytes allocated in hour " + (hour + 1), 0, allocated);
+        }
+    }
+
+    @Test
+    public void trimsToMaxLength() {
+        final BugTrail trail = new BugTrail(100, 2);
+        trail.reset(0, 0);
+        for (int i = 1; i <= 1000; i++) trail.lineTo(i, 0);
+
+        final CountingCanvas canvas = new CountingCanvas();
+        trail.draw(canvas, null);
+        assertEquals(50, canvas.segments);
+    }
+}